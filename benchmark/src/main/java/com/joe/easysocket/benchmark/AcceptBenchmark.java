@@ -0,0 +1,175 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import com.joe.easysocket.server.protocol.netty.CustomFrameDecoder;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接风暴基准测试，服务端和客户端在同一进程中通过localhost连接，对比不同acceptors（SO_REUSEPORT通道数）：
+ * 1、storm：同时发起大量连接，每秒能完成的连接数（接受速率）；
+ * 2、connect：单个连接的就绪时间。
+ * 连接就绪指客户端发出的心跳包收到了服务端IO线程的回复，即连接已经被接受、注册并且完成了处理链初始化。
+ * acceptors大于1只有在epoll下有效，需要在linux下运行。
+ *
+ * @author joe
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AcceptBenchmark {
+    private static final String HOST = "127.0.0.1";
+    private static final int PORT = 10074;
+    //storm每次调用同时发起的连接数
+    private static final int STORM = 256;
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(STORM)
+    public void storm(Storm state) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture[STORM];
+        for (int i = 0; i < STORM; i++) {
+            futures[i] = state.connect();
+        }
+        CompletableFuture.allOf(futures).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void connect(Storm state) throws Exception {
+        state.connect().get();
+    }
+
+    /**
+     * 服务端和裸连接客户端，客户端关闭连接时使用SO_LINGER为0直接复位，避免大量TIME_WAIT耗尽本地端口
+     */
+    @State(Scope.Benchmark)
+    public static class Storm {
+        //监听端口的通道数，服务端的接受连接线程数与其相同
+        @Param({"1", "4"})
+        public int acceptors;
+        private BenchServer server;
+        private EventLoopGroup group;
+        private Bootstrap bootstrap;
+        //本次调用建立的连接，调用结束后关闭
+        private final List<Channel> channels = new ArrayList<>();
+
+        @Setup
+        public void setup() throws Exception {
+            server = BenchServer.start(ServerConfig.builder().port(PORT).acceptors(acceptors).bossThreads
+                    (acceptors).backlog(STORM * 4));
+            boolean epoll = Epoll.isAvailable();
+            group = epoll ? new EpollEventLoopGroup(4) : new NioEventLoopGroup(4);
+            bootstrap = new Bootstrap().group(group).channel(epoll ? EpollSocketChannel.class : NioSocketChannel
+                    .class).option(ChannelOption.TCP_NODELAY, true).option(ChannelOption.SO_LINGER, 0);
+        }
+
+        /**
+         * 发起一个连接
+         *
+         * @return 连接就绪后结束的future
+         */
+        private CompletableFuture<Channel> connect() {
+            CompletableFuture<Channel> ready = new CompletableFuture<>();
+            ChannelFuture future = bootstrap.clone().handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) throws Exception {
+                    ch.pipeline().addLast(new CustomFrameDecoder(), new ReadyHandler(ready));
+                }
+            }).connect(HOST, PORT);
+            //连接失败时不会触发channelInactive
+            future.addListener(f -> {
+                if (!f.isSuccess()) {
+                    ready.completeExceptionally(f.cause());
+                }
+            });
+            channels.add(future.channel());
+            return ready;
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            channels.forEach(channel -> channel.close().syncUninterruptibly());
+            channels.clear();
+        }
+
+        @TearDown
+        public void tearDown() {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 连接建立后发送一个心跳包，收到回复时连接就绪
+     */
+    private static class ReadyHandler extends ChannelInboundHandlerAdapter {
+        private final CompletableFuture<Channel> ready;
+
+        private ReadyHandler(CompletableFuture<Channel> ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            ctx.writeAndFlush(DatagramUtil.encode(ctx.alloc(), null, HEARTBEAT, Datagram.VERSION_2, 1));
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ReferenceCountUtil.release(msg);
+            ready.complete(ctx.channel());
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            ready.completeExceptionally(new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            ready.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.ext.mvc.container.Provider;
+import com.joe.easysocket.server.ext.mvc.context.RequestContext;
+import com.joe.easysocket.server.ext.mvc.filter.NioRequestFilter;
+import com.joe.easysocket.server.ext.mvc.param.GeneralParam;
+import com.joe.easysocket.server.ext.mvc.resource.annotation.Path;
+
+/**
+ * 基准测试使用的资源和filter，bean容器扫描该包
+ *
+ * @author joe
+ */
+public class BenchResources {
+    //bean容器扫描的包
+    public static final String PACKAGE = "com.joe.easysocket.benchmark";
+    //MVC数据处理器的bean容器扫描的包，除了基准测试的资源还需要框架内置的数据编解码器
+    public static final String[] DATAWORKER_PACKAGES = {PACKAGE, "com.joe.easysocket.server.ext.mvc"};
+    //单参数资源
+    public static final String ONE = "bench/one";
+    //单参数资源的请求数据
+    public static final String ONE_DATA = "{\"name\":\"joe\"}";
+    //多参数资源
+    public static final String MULTI = "bench/multi";
+    //多参数资源的请求数据
+    public static final String MULTI_DATA = "{\"name\":\"joe\",\"age\":\"18\",\"city\":\"beijing\"}";
+
+    @Path("bench")
+    public static class BenchResource {
+        @Path("one")
+        public User one(@GeneralParam("name") String name) {
+            return new User(name, 0, null);
+        }
+
+        @Path("multi")
+        public User multi(@GeneralParam("name") String name, @GeneralParam("age") int age, @GeneralParam("city")
+                String city) {
+            return new User(name, age, city);
+        }
+    }
+
+    @Provider
+    public static class BenchFilter extends NioRequestFilter {
+        @Override
+        public void requestFilter(RequestContext.RequestWrapper request) {
+            // 只测试filter调度的开销
+        }
+    }
+
+    public static class User {
+        private final String name;
+        private final int age;
+        private final String city;
+
+        public User(String name, int age, String city) {
+            this.name = name;
+            this.age = age;
+            this.city = city;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+}
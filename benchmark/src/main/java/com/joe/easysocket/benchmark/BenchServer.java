@@ -0,0 +1,53 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.Server;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DataWorker;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.mvc.MvcDataworker;
+import com.joe.easysocket.server.ext.mvc.container.BeanContainerImpl;
+import com.joe.easysocket.server.protocol.ServerConfig;
+
+/**
+ * 端到端基准测试使用的服务端：在当前进程中启动服务端和MVC数据处理器（资源为{@link BenchResources}），开启IO线程心跳
+ * 回复，客户端的ping不经过队列和数据处理器
+ *
+ * @author joe
+ */
+public class BenchServer {
+    private final Server server;
+
+    private BenchServer(Server server) {
+        this.server = server;
+    }
+
+    /**
+     * 启动服务端
+     *
+     * @param builder 服务端配置，发布中心、队列和数据处理器由该方法设置
+     * @return 已经启动的服务端
+     * @throws Exception 启动失败
+     */
+    public static BenchServer start(ServerConfig.ServerConfigBuilder builder) throws Exception {
+        PublishCenter publishCenter = new DefaultPublishCenter();
+        CustomDeque<ProtocolData> deque = new CustomDequeImpl<>();
+        DataWorker dataworker = new MvcDataworker(MvcDataworker.MvcDataworkerConfig.builder().publishCenter
+                (publishCenter).deque(deque).beanContainer(new BeanContainerImpl(BenchResources.DATAWORKER_PACKAGES))
+                .managed(true).build());
+        Server server = Server.buildDefault(builder.publishCenter(publishCenter).deque(deque).dataWorker(dataworker)
+                .ioHeartbeat(true).heartbeatPong(true).shutdownTimeout(0).build());
+        server.start(null);
+        dataworker.start("bench", null);
+        return new BenchServer(server);
+    }
+
+    /**
+     * 关闭服务端，数据处理器由服务端在排空后关闭
+     */
+    public void shutdown() {
+        server.shutdown(null);
+    }
+}
@@ -0,0 +1,148 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.Compressor;
+import com.joe.easysocket.server.ext.DeflateCompressor;
+import com.joe.easysocket.server.protocol.netty.CompressDecoder;
+import com.joe.easysocket.server.protocol.netty.CompressEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩基准测试：DeflateCompressor的压缩和解压，以及处理链中CompressEncoder压缩一个完整数据报、CompressDecoder
+ * 解压一个压缩数据报的开销；json为可压缩的文本，random为随机数据（压缩后不会变小，CompressEncoder会原样写出）
+ *
+ * @author joe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressBenchmark {
+    //body大小，单位为byte
+    @Param({"512", "16384"})
+    private int size;
+    //body内容：json或者random
+    @Param({"json", "random"})
+    private String data;
+    //压缩级别，-1为默认级别（6）
+    @Param({"1", "-1"})
+    private int level;
+    private Compressor compressor;
+    private byte[] body;
+    private byte[] compressed;
+    //未压缩的完整数据报
+    private byte[] datagram;
+    //压缩的完整数据报
+    private ByteBuf compressedDatagram;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() throws IOException {
+        compressor = new DeflateCompressor(level);
+        body = "json".equals(data) ? json(size) : random(size);
+        compressed = compressor.compress(body, 0, body.length);
+        datagram = DatagramUtil.encode(body, (byte) 1, Datagram.VERSION_2, 1);
+        compressedDatagram = Unpooled.unreleasableBuffer(compressed(compressed));
+
+        Compressor[] compressors = new Compressor[(Datagram.COMPRESSOR_MASK >> Datagram.COMPRESSOR_SHIFT) + 1];
+        compressors[compressor.id()] = compressor;
+        channel = new EmbeddedChannel(new CompressDecoder(compressors, Datagram.MAX_LENGTH), new CompressEncoder
+                (0));
+        //连接收到压缩的数据报后才会压缩发往该连接的数据报
+        channel.writeInbound(compressedDatagram.duplicate());
+        ReferenceCountUtil.release(channel.readInbound());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return compressor.compress(body, 0, body.length);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        return compressor.decompress(compressed, 0, compressed.length, Datagram.MAX_LENGTH);
+    }
+
+    @Benchmark
+    public Object encode() {
+        channel.writeOutbound(datagram);
+        Object out = channel.readOutbound();
+        ReferenceCountUtil.release(out);
+        return out;
+    }
+
+    @Benchmark
+    public Object decode() {
+        channel.writeInbound(compressedDatagram.duplicate());
+        Object in = channel.readInbound();
+        ReferenceCountUtil.release(in);
+        return in;
+    }
+
+    /**
+     * 构建压缩的数据报
+     *
+     * @param compressed 压缩后的body
+     * @return 设置了压缩标志的数据报
+     */
+    private ByteBuf compressed(byte[] compressed) {
+        ByteBuf buf = DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, compressed, (byte) 1, Datagram
+                .VERSION_2, 1);
+        int flagsIndex = DatagramUtil.flagsIndex(Datagram.VERSION_2);
+        buf.setByte(flagsIndex, buf.getByte(flagsIndex) | Datagram.FLAG_COMPRESSED | (compressor.id() << Datagram
+                .COMPRESSOR_SHIFT));
+        return buf;
+    }
+
+    /**
+     * 生成指定大小的json数组，字段名重复、字段值变化，与接口返回的列表数据类似
+     *
+     * @param size 大小，单位为byte
+     * @return json
+     */
+    private static byte[] json(int size) {
+        StringBuilder sb = new StringBuilder("[");
+        Random random = new Random(size);
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"user").append(random.nextInt(100000)).append
+                    ("\",\"score\":").append(random.nextInt(1000)).append(",\"active\":").append(random.nextBoolean
+                    ()).append("},");
+        }
+        return Arrays.copyOf(sb.toString().getBytes(), size);
+    }
+
+    private static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
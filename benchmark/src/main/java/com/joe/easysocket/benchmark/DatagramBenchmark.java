@@ -0,0 +1,114 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据报编解码基准测试：DatagramUtil.build/encode/decode以及Datagram的构造、getter和视图
+ *
+ * @author joe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatagramBenchmark {
+    //body大小，单位为byte
+    @Param({"64", "16384"})
+    private int size;
+    //数据报版本
+    @Param({"1", "2"})
+    private byte version;
+    private byte[] body;
+    private byte[] data;
+    private ByteBuf buf;
+    private Datagram datagram;
+
+    @Setup
+    public void setup() {
+        body = new byte[size];
+        Arrays.fill(body, (byte) 'a');
+        datagram = DatagramUtil.build(body, (byte) 1, version, 1);
+        data = datagram.getData();
+        buf = Unpooled.directBuffer(data.length).writeBytes(data);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buf.release();
+    }
+
+    @Benchmark
+    public Datagram build() {
+        return DatagramUtil.build(body, (byte) 1, version, 1);
+    }
+
+    @Benchmark
+    public byte[] encodeBytes() {
+        return DatagramUtil.encode(body, (byte) 1, version, 1);
+    }
+
+    /**
+     * 响应写出路径：直接编码到池化的缓冲区中
+     */
+    @Benchmark
+    public void encodeByteBuf() {
+        DatagramUtil.encode(PooledByteBufAllocator.DEFAULT, body, (byte) 1, version, 1).release();
+    }
+
+    @Benchmark
+    public Datagram decodeBytes() {
+        return DatagramUtil.decode(data);
+    }
+
+    @Benchmark
+    public Datagram decodeByteBuf() {
+        return DatagramUtil.decode(buf);
+    }
+
+    @Benchmark
+    public Datagram construct() {
+        return new Datagram(data, size, body, version, datagram.getCharset(), (byte) 1, 1);
+    }
+
+    @Benchmark
+    public void getters(Blackhole blackhole) {
+        blackhole.consume(datagram.getData());
+        blackhole.consume(datagram.getBody());
+        blackhole.consume(datagram.getVersion());
+        blackhole.consume(datagram.getCharset());
+        blackhole.consume(datagram.getType());
+        blackhole.consume(datagram.getCorrelationId());
+    }
+
+    /**
+     * 与getters对比：通过视图读取数据报，不复制数组
+     */
+    @Benchmark
+    public void views(Blackhole blackhole) {
+        blackhole.consume(datagram.dataBuffer());
+        blackhole.consume(datagram.bodyBuffer());
+        blackhole.consume(datagram.bodyStream());
+    }
+}
@@ -0,0 +1,129 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.client.Client;
+import com.joe.easysocket.client.ClientConfig;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端写出合并基准测试：客户端在一个连接上流水线发送请求，对比服务端flushBatchSize为1（每条响应flush一次）和
+ * 开启写出合并时的吞吐量（消息/秒）以及每条消息的写系统调用次数。
+ * <p>
+ * 写系统调用次数读取自/proc/self/io的syscw（只能在linux下统计，其他系统为0），服务端和客户端在同一进程中，
+ * 客户端的配置在各组参数下相同（每次调用的请求合并为一次flush），差异全部来自服务端的响应写出
+ *
+ * @author joe
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlushBenchmark {
+    private static final int PORT = 10075;
+    //每次调用同时发出的请求数
+    private static final int PIPELINE = 64;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE)
+    public void pipelined(Flush state, Syscalls syscalls) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            futures[i] = state.client.invoke(BenchResources.ONE, BenchResources.ONE_DATA);
+        }
+        CompletableFuture.allOf(futures).get();
+        syscalls.record(PIPELINE);
+    }
+
+    /**
+     * 服务端和客户端，服务端的写出合并配置由参数决定
+     */
+    @State(Scope.Benchmark)
+    public static class Flush {
+        //服务端累计该条数的响应后flush，1为不合并（每条响应flush一次）
+        @Param({"1", "16", "64"})
+        public int flushBatchSize;
+        private BenchServer server;
+        private Client client;
+
+        @Setup
+        public void setup() throws Exception {
+            //flushMaxDelay为0：未达到条数时在本轮事件循环结束时flush
+            server = BenchServer.start(ServerConfig.builder().port(PORT).flushBatchSize(flushBatchSize)
+                    .flushMaxDelay(0));
+            client = Client.buildDefault(ClientConfig.builder().port(PORT).poolSize(1).flushBatchSize(PIPELINE)
+                    .build());
+            client.start();
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.shutdown();
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 写系统调用次数和消息数，JMH按迭代累加，两者相除即为每条消息的写系统调用次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Syscalls {
+        //本轮迭代的写系统调用次数
+        public long writes;
+        //本轮迭代的消息数（请求加响应算一条）
+        public long messages;
+        //本轮迭代开始时的写系统调用次数
+        private long start;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            start = syscw();
+            writes = 0;
+            messages = 0;
+        }
+
+        private void record(int count) {
+            messages += count;
+            writes = syscw() - start;
+        }
+
+        /**
+         * 读取当前进程的写系统调用次数
+         *
+         * @return 写系统调用次数，无法读取时返回0
+         */
+        private static long syscw() {
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc/self/io"))) {
+                    if (line.startsWith("syscw:")) {
+                        return Long.parseLong(line.substring(6).trim());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // 非linux系统没有该文件
+            }
+            return 0;
+        }
+    }
+}
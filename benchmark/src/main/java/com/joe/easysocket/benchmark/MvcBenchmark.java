@@ -0,0 +1,102 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.mvc.BeanContainer;
+import com.joe.easysocket.server.ext.mvc.coder.json.JsonDataInterceptor;
+import com.joe.easysocket.server.ext.mvc.container.BeanContainerImpl;
+import com.joe.easysocket.server.ext.mvc.context.RequestContext;
+import com.joe.easysocket.server.ext.mvc.filter.FilterContainer;
+import com.joe.easysocket.server.ext.mvc.param.ParamParserContainer;
+import com.joe.easysocket.server.ext.mvc.resource.Resource;
+import com.joe.easysocket.server.ext.mvc.resource.ResourceContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MVC组件基准测试：参数编解码、资源查找、请求filter
+ *
+ * @author joe
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MvcBenchmark {
+    private BeanContainer beanContainer;
+    private ResourceContainer resourceContainer;
+    private FilterContainer filterContainer;
+    private ParamParserContainer paramParserContainer;
+    private JsonDataInterceptor interceptor;
+    private Resource one;
+    private Resource multi;
+    private RequestContext requestContext;
+    private BenchResources.User user;
+
+    @Setup
+    public void setup() {
+        beanContainer = new BeanContainerImpl(BenchResources.PACKAGE);
+        beanContainer.init();
+        resourceContainer = new ResourceContainer(beanContainer);
+        filterContainer = new FilterContainer(beanContainer);
+        paramParserContainer = new ParamParserContainer(beanContainer);
+        resourceContainer.init();
+        filterContainer.init();
+        paramParserContainer.init();
+        interceptor = new JsonDataInterceptor();
+        interceptor.init(paramParserContainer);
+
+        one = resourceContainer.findResource(BenchResources.ONE);
+        multi = resourceContainer.findResource(BenchResources.MULTI);
+        Datagram datagram = DatagramUtil.build(BenchResources.MULTI_DATA.getBytes(), (byte) 1, Datagram.VERSION_2);
+        requestContext = new RequestContext("bench", datagram, datagram.getCharset());
+        user = new BenchResources.User("joe", 18, "beijing");
+    }
+
+    @TearDown
+    public void tearDown() {
+        paramParserContainer.destroy();
+        filterContainer.destroy();
+        resourceContainer.destroy();
+        beanContainer.destroy();
+    }
+
+    @Benchmark
+    public Object[] readOneParam() throws Exception {
+        return interceptor.read(one.getParams(), requestContext, BenchResources.ONE_DATA);
+    }
+
+    @Benchmark
+    public Object[] readMultiParam() throws Exception {
+        return interceptor.read(multi.getParams(), requestContext, BenchResources.MULTI_DATA);
+    }
+
+    @Benchmark
+    public String write() {
+        return interceptor.write(user);
+    }
+
+    @Benchmark
+    public Resource findResource() {
+        return resourceContainer.findResource(BenchResources.MULTI);
+    }
+
+    @Benchmark
+    public RequestContext requestFilter() throws Exception {
+        filterContainer.requestFilter(requestContext.getRequest());
+        return requestContext;
+    }
+}
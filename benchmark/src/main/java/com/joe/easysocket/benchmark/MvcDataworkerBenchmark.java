@@ -0,0 +1,74 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.ext.mvc.MvcDataworker;
+import com.joe.easysocket.server.ext.mvc.container.BeanContainerImpl;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.utils.parse.json.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MVC数据处理器端到端基准测试：通过MvcDataworker#process从请求数据报到响应数据报（不包含队列和线程池调度）
+ *
+ * @author joe
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MvcDataworkerBenchmark {
+    private MvcDataworker dataworker;
+    private Datagram one;
+    private Datagram multi;
+    private ProtocolData.ChannelInfo channelInfo;
+
+    @Setup
+    public void setup() {
+        dataworker = new MvcDataworker(MvcDataworker.MvcDataworkerConfig.builder().publishCenter(new
+                DefaultPublishCenter()).deque(new CustomDequeImpl<>()).beanContainer(new BeanContainerImpl
+                (BenchResources.DATAWORKER_PACKAGES)).managed(true).build());
+        dataworker.start("bench", null);
+        one = request(BenchResources.ONE, BenchResources.ONE_DATA);
+        multi = request(BenchResources.MULTI, BenchResources.MULTI_DATA);
+        channelInfo = new ProtocolData.ChannelInfo("127.0.0.1", 10051, "bench", 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        //关闭工作线程和线程池
+        dataworker.shutdown();
+    }
+
+    private static Datagram request(String invoke, String data) {
+        byte[] body = JsonParser.getInstance().toJson(new InterfaceData("1", invoke, data)).getBytes();
+        return DatagramUtil.build(body, (byte) 1, Datagram.VERSION_2, 1);
+    }
+
+    @Benchmark
+    public ProtocolData acceptOneParam() {
+        return dataworker.process(one, channelInfo);
+    }
+
+    @Benchmark
+    public ProtocolData acceptMultiParam() {
+        return dataworker.process(multi, channelInfo);
+    }
+}
@@ -0,0 +1,170 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.client.Client;
+import com.joe.easysocket.client.ClientConfig;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS基准测试，服务端和客户端在同一进程中通过localhost连接：
+ * 1、handshake：每秒能建立的连接数，分别测试明文连接、每次完整握手和复用会话；
+ * 2、request、pipelined：TLS和明文连接上单个请求的延迟分布以及流水线请求的吞吐量。
+ *
+ * @author joe
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlsBenchmark {
+    private static final String HOST = "127.0.0.1";
+    private static final int HANDSHAKE_PORT = 10071;
+    private static final int REQUEST_PORT = 10072;
+    //流水线测试每次调用同时发出的请求数
+    private static final int PIPELINE = 64;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void handshake(Handshake state) throws Exception {
+        Channel channel = state.bootstrap.connect(HOST, HANDSHAKE_PORT).sync().channel();
+        SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+        if (sslHandler != null) {
+            sslHandler.handshakeFuture().sync();
+        }
+        channel.close().sync();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public InterfaceData request(Requests state) throws Exception {
+        return state.client.invoke(BenchResources.ONE, state.data).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE)
+    public void pipelined(Requests state) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            futures[i] = state.client.invoke(BenchResources.ONE, state.data);
+        }
+        CompletableFuture.allOf(futures).get();
+    }
+
+    /**
+     * 握手测试的服务端和裸连接客户端
+     */
+    @State(Scope.Benchmark)
+    public static class Handshake {
+        //plain：明文连接；full：不传入服务端地址，每次都是完整握手；resume：传入服务端地址，复用缓存的会话
+        @Param({"plain", "full", "resume"})
+        public String mode;
+        private SelfSignedCertificate cert;
+        private BenchServer server;
+        private EventLoopGroup group;
+        private Bootstrap bootstrap;
+
+        @Setup
+        public void setup() throws Exception {
+            cert = new SelfSignedCertificate();
+            boolean tls = !"plain".equals(mode);
+            ServerConfig.ServerConfigBuilder builder = ServerConfig.builder().port(HANDSHAKE_PORT);
+            if (tls) {
+                builder.sslCertFile(cert.certificate()).sslKeyFile(cert.privateKey());
+            }
+            server = BenchServer.start(builder);
+
+            SslContext sslContext = tls ? SslContextBuilder.forClient().sslProvider(SslProvider.JDK).trustManager
+                    (cert.certificate()).build() : null;
+            boolean resume = "resume".equals(mode);
+            group = new NioEventLoopGroup(1);
+            ChannelInitializer<Channel> initializer = new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) throws Exception {
+                    if (sslContext != null) {
+                        ch.pipeline().addLast(resume ? sslContext.newHandler(ch.alloc(), HOST, HANDSHAKE_PORT) :
+                                sslContext.newHandler(ch.alloc()));
+                    }
+                }
+            };
+            bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class).handler(initializer);
+        }
+
+        @TearDown
+        public void tearDown() {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+            server.shutdown();
+            cert.delete();
+        }
+    }
+
+    /**
+     * 请求测试的服务端和客户端，请求调用单参数资源，响应中原样返回参数，所以请求和响应的body大小基本相同
+     */
+    @State(Scope.Benchmark)
+    public static class Requests {
+        @Param({"false", "true"})
+        public boolean tls;
+        //请求参数的大小，单位为byte
+        @Param({"64", "16384"})
+        public int size;
+        private SelfSignedCertificate cert;
+        private BenchServer server;
+        private Client client;
+        private String data;
+
+        @Setup
+        public void setup() throws Exception {
+            cert = new SelfSignedCertificate();
+            ServerConfig.ServerConfigBuilder builder = ServerConfig.builder().port(REQUEST_PORT);
+            if (tls) {
+                builder.sslCertFile(cert.certificate()).sslKeyFile(cert.privateKey());
+            }
+            server = BenchServer.start(builder);
+            client = Client.buildDefault(ClientConfig.builder().port(REQUEST_PORT).ssl(tls).sslTrustCertFile(cert
+                    .certificate()).build());
+            client.start();
+
+            char[] chars = new char[size];
+            Arrays.fill(chars, 'a');
+            data = "{\"name\":\"" + new String(chars) + "\"}";
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.shutdown();
+            server.shutdown();
+            cert.delete();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.joe.easysocket.benchmark;
+
+import com.joe.easysocket.client.Client;
+import com.joe.easysocket.client.ClientConfig;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unix domain socket与本地回环TCP的对比基准测试，服务端和客户端在同一进程中，都使用epoll模型（需要在linux下运行）：
+ * 1、ping：心跳在IO线程中直接回复，只包含传输层和编解码的往返延迟；
+ * 2、request、pipelined：经过数据处理器的单个请求的延迟分布以及流水线请求的吞吐量。
+ *
+ * @author joe
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+    private static final int PORT = 10073;
+    //流水线测试每次调用同时发出的请求数
+    private static final int PIPELINE = 64;
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void ping(Transport state) throws Exception {
+        state.client.ping().get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public InterfaceData request(Transport state) throws Exception {
+        return state.client.invoke(BenchResources.ONE, state.data).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE)
+    public void pipelined(Transport state) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            futures[i] = state.client.invoke(BenchResources.ONE, state.data);
+        }
+        CompletableFuture.allOf(futures).get();
+    }
+
+    /**
+     * 服务端同时监听TCP和Unix domain socket，客户端按参数选择其中一个连接
+     */
+    @State(Scope.Benchmark)
+    public static class Transport {
+        //tcp：通过127.0.0.1连接；uds：通过Unix domain socket连接
+        @Param({"tcp", "uds"})
+        public String transport;
+        //请求参数的大小，单位为byte
+        @Param({"64", "16384"})
+        public int size;
+        private File socket;
+        private BenchServer server;
+        private Client client;
+        private String data;
+
+        @Setup
+        public void setup() throws Exception {
+            socket = new File(System.getProperty("java.io.tmpdir"), "easysocket-bench.sock");
+            server = BenchServer.start(ServerConfig.builder().port(PORT).domainSocketPath(socket.getPath()));
+            ClientConfig.ClientConfigBuilder builder = ClientConfig.builder().port(PORT);
+            if ("uds".equals(transport)) {
+                builder.domainSocketPath(socket.getPath());
+            }
+            client = Client.buildDefault(builder.build());
+            client.start();
+
+            char[] chars = new char[size];
+            Arrays.fill(chars, 'a');
+            data = "{\"name\":\"" + new String(chars) + "\"}";
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.shutdown();
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.joe.easysocket.client;
+
+import com.joe.easysocket.client.netty.ClientHandler;
+import com.joe.easysocket.client.netty.ClientRequest;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.Compressor;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.easysocket.server.protocol.netty.CompressDecoder;
+import com.joe.easysocket.server.protocol.netty.CustomFrameDecoder;
+import com.joe.easysocket.server.protocol.netty.FlushBatchHandler;
+import com.joe.utils.parse.json.JsonParser;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 客户端，使用与服务端相同的数据报格式调用服务端的MVC接口
+ *
+ * @author joe
+ */
+public interface Client {
+    /**
+     * 启动客户端，建立连接池中的所有连接（建立失败的连接会在使用时重连）
+     */
+    void start();
+
+    /**
+     * 关闭客户端，所有未响应的请求以失败结束
+     */
+    void shutdown();
+
+    /**
+     * 异步调用服务端接口，同一个连接上可以同时有多个未响应的请求
+     *
+     * @param invoke 要调用的接口，例如user/login
+     * @param data   要发送的数据，可以为null
+     * @return 服务端响应的InterfaceData；超时时以TimeoutException结束，连接失败或者关闭时以ClientException结束
+     */
+    CompletableFuture<InterfaceData> invoke(String invoke, String data);
+
+    /**
+     * 发送一个心跳包并等待服务端回复，服务端需要开启ioHeartbeat和heartbeatPong，否则返回的future会超时
+     *
+     * @return 收到心跳回复后结束的future；超时时以TimeoutException结束，连接失败或者关闭时以ClientException结束
+     */
+    CompletableFuture<Void> ping();
+
+    /**
+     * 构建默认的netty实现的client
+     *
+     * @param config 客户端配置
+     * @return 使用netty实现的client
+     */
+    static Client buildDefault(ClientConfig config) {
+        return new NettyClient(config);
+    }
+
+    /**
+     * 默认的基于netty实现的Client，请求使用版本2的数据报，关联ID与InterfaceData的ID相同
+     *
+     * @author joe
+     */
+    class NettyClient implements Client {
+        private static final Logger logger = LoggerFactory.getLogger(NettyClient.class);
+        private static final JsonParser parser = JsonParser.getInstance();
+        private final ClientConfig config;
+        //请求关联ID生成器
+        private final AtomicInteger ids = new AtomicInteger();
+        //下一个使用的连接
+        private final AtomicInteger next = new AtomicInteger();
+        //连接池，每个位置保存一个连接（或者正在建立的连接）
+        private final AtomicReferenceArray<ChannelFuture> slots;
+        //是否每条消息都立即flush
+        private final boolean autoFlush;
+        private final AtomicBoolean start = new AtomicBoolean(false);
+        private EventLoopGroup workerGroup;
+        private Bootstrap bootstrap;
+        //请求超时检查时间轮
+        private HashedWheelTimer timer;
+        //TLS上下文，为null时不使用TLS
+        private SslContext sslContext;
+        //响应解压器，没有配置压缩算法时为null
+        private final CompressDecoder compressDecoder;
+
+        private NettyClient(ClientConfig config) {
+            this.config = config;
+            this.slots = new AtomicReferenceArray<>(Math.max(config.getPoolSize(), 1));
+            this.autoFlush = config.getFlushBatchSize() <= 1;
+            this.compressDecoder = buildCompressDecoder(config);
+        }
+
+        @Override
+        public synchronized void start() {
+            if (start.get()) {
+                logger.warn("客户端已经启动，请勿重复启动");
+                return;
+            }
+            boolean domainSocket = config.getDomainSocketPath() != null;
+            if (domainSocket) {
+                logger.info("启动客户端，服务端Unix domain socket：{}；连接数：{}", config.getDomainSocketPath(), slots
+                        .length());
+            } else {
+                logger.info("启动客户端，服务端地址：{}:{}；连接数：{}", config.getHost(), config.getPort(), slots.length());
+            }
+
+            boolean epoll = config.getWorkerGroup() == null ? Epoll.isAvailable() : config.getWorkerGroup()
+                    instanceof EpollEventLoopGroup;
+            if (domainSocket && !epoll) {
+                throw new ClientException("Unix domain socket只能在epoll模型下使用");
+            }
+            if (config.getWorkerGroup() != null) {
+                workerGroup = config.getWorkerGroup();
+            } else {
+                workerGroup = epoll ? new EpollEventLoopGroup(config.getWorkerThreads()) : new NioEventLoopGroup
+                        (config.getWorkerThreads());
+            }
+
+            bootstrap = new Bootstrap().group(workerGroup).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config
+                    .getConnectTimeout()).option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT).handler(new
+                    ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) throws Exception {
+                    initPipeline(ch.pipeline());
+                }
+            });
+            if (domainSocket) {
+                bootstrap.channel(EpollDomainSocketChannel.class).remoteAddress(new DomainSocketAddress(config
+                        .getDomainSocketPath()));
+            } else {
+                bootstrap.channel(epoll ? EpollSocketChannel.class : NioSocketChannel.class).option(ChannelOption
+                        .TCP_NODELAY, true).remoteAddress(config.getHost(), config.getPort());
+            }
+            sslContext = buildSslContext(config);
+            timer = new HashedWheelTimer(r -> new Thread(r, "客户端请求超时检查线程"), 100, TimeUnit.MILLISECONDS,
+                    512);
+            start.set(true);
+
+            for (int i = 0; i < slots.length(); i++) {
+                ChannelFuture future = connect(i, null).awaitUninterruptibly();
+                if (!future.isSuccess()) {
+                    logger.warn("连接服务端失败，该连接将在使用时重连", future.cause());
+                }
+            }
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            if (!start.get()) {
+                logger.debug("客户端已经关闭，请勿重复关闭");
+                return;
+            }
+            logger.info("关闭客户端");
+            start.set(false);
+            for (int i = 0; i < slots.length(); i++) {
+                ChannelFuture future = slots.getAndSet(i, null);
+                if (future != null) {
+                    future.channel().close().awaitUninterruptibly();
+                }
+            }
+            timer.stop();
+            if (workerGroup != config.getWorkerGroup()) {
+                workerGroup.shutdownGracefully();
+            }
+            workerGroup = null;
+        }
+
+        @Override
+        public CompletableFuture<InterfaceData> invoke(String invoke, String data) {
+            CompletableFuture<InterfaceData> future = new CompletableFuture<>();
+            if (!start.get()) {
+                future.completeExceptionally(new ClientException("客户端未启动"));
+                return future;
+            }
+
+            int id = ids.incrementAndGet();
+            byte[] body = parser.toJson(new InterfaceData(String.valueOf(id), invoke, data)).getBytes();
+            ClientRequest request = new ClientRequest(id, body, future);
+
+            ChannelFuture connect = acquire();
+            if (connect.isDone()) {
+                send(connect, request);
+            } else {
+                connect.addListener(f -> send(connect, request));
+            }
+
+            Timeout timeout = timer.newTimeout(t -> {
+                if (future.completeExceptionally(new TimeoutException("请求" + id + "超时"))) {
+                    ClientHandler.remove(connect.channel(), id);
+                }
+            }, config.getRequestTimeout(), TimeUnit.MILLISECONDS);
+            //请求结束后立即从时间轮中移除超时检查，避免时间轮中积压大量已经结束的请求
+            future.whenComplete((result, e) -> timeout.cancel());
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<Void> ping() {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (!start.get()) {
+                future.completeExceptionally(new ClientException("客户端未启动"));
+                return future;
+            }
+
+            int id = nextPingId();
+            ChannelFuture connect = acquire();
+            ClientHandler.PingRequest request = new ClientHandler.PingRequest(id, future);
+            if (connect.isDone()) {
+                send(connect, request, future);
+            } else {
+                connect.addListener(f -> send(connect, request, future));
+            }
+            Timeout timeout = timer.newTimeout(t -> {
+                if (future.completeExceptionally(new TimeoutException("ping" + id + "超时"))) {
+                    ClientHandler.removePing(connect.channel(), id);
+                }
+            }, config.getRequestTimeout(), TimeUnit.MILLISECONDS);
+            future.whenComplete((result, e) -> timeout.cancel());
+            return future;
+        }
+
+        /**
+         * 生成ping的关联ID，跳过写空闲心跳包使用的0
+         *
+         * @return ping的关联ID
+         */
+        private int nextPingId() {
+            int id;
+            do {
+                id = ids.incrementAndGet();
+            } while (id == 0);
+            return id;
+        }
+
+        /**
+         * 将请求写入连接，合并写出时由FlushBatchHandler负责flush
+         *
+         * @param connect 连接
+         * @param request 请求
+         */
+        private void send(ChannelFuture connect, ClientRequest request) {
+            send(connect, request, request.getFuture());
+        }
+
+        /**
+         * 将请求写入连接，合并写出时由FlushBatchHandler负责flush
+         *
+         * @param connect 连接
+         * @param request 请求
+         * @param future  请求的结果，连接失败时以失败结束
+         */
+        private void send(ChannelFuture connect, Object request, CompletableFuture<?> future) {
+            if (!connect.isSuccess()) {
+                future.completeExceptionally(new ClientException("连接服务端失败", connect.cause()));
+                return;
+            }
+            Channel channel = connect.channel();
+            if (autoFlush) {
+                channel.writeAndFlush(request, channel.voidPromise());
+            } else if (channel.eventLoop().inEventLoop()) {
+                channel.write(request, channel.voidPromise());
+            } else {
+                // 在IO线程之外单独write时netty提交的写任务不会唤醒事件循环，连接空闲时请求会一直等到下一个定时任务
+                // （例如写空闲检查）才写出，所以提交一个普通任务
+                channel.eventLoop().execute(() -> channel.write(request, channel.voidPromise()));
+            }
+        }
+
+        /**
+         * 从连接池中轮询选择一个连接，选中的连接不可用时重连
+         *
+         * @return 选中的连接，可能还未建立完成
+         */
+        private ChannelFuture acquire() {
+            int index = (next.getAndIncrement() & Integer.MAX_VALUE) % slots.length();
+            ChannelFuture future = slots.get(index);
+            if (future != null && (!future.isDone() || (future.isSuccess() && ClientHandler.usable(future.channel()
+            )))) {
+                return future;
+            }
+            return connect(index, future);
+        }
+
+        /**
+         * 重新建立连接池中指定位置的连接
+         *
+         * @param index 连接池中的位置
+         * @param old   该位置原来的连接，如果该位置的连接已经被其他线程替换则直接返回新的连接
+         * @return 新的连接
+         */
+        private ChannelFuture connect(int index, ChannelFuture old) {
+            synchronized (slots) {
+                ChannelFuture current = slots.get(index);
+                if (current != old) {
+                    return current;
+                }
+                logger.debug("建立连接池中第{}个连接", index);
+                ChannelFuture future = bootstrap.connect();
+                slots.set(index, future);
+                return future;
+            }
+        }
+
+        /**
+         * 根据配置构建TLS上下文，使用JDK的SSLEngine；同一个上下文创建的连接会缓存会话，重连时可以复用会话跳过完整握手
+         *
+         * @param config 客户端配置
+         * @return TLS上下文，没有开启TLS时返回null
+         */
+        private static SslContext buildSslContext(ClientConfig config) {
+            if (config.getSslContext() != null) {
+                return config.getSslContext();
+            }
+            if (!config.isSsl()) {
+                return null;
+            }
+            try {
+                return SslContextBuilder.forClient().sslProvider(SslProvider.JDK).trustManager(config
+                        .getSslTrustCertFile()).build();
+            } catch (SSLException e) {
+                throw new ClientException("TLS上下文初始化失败", e);
+            }
+        }
+
+        /**
+         * 根据配置构建响应解压器，服务端只会使用客户端请求使用的压缩算法压缩响应
+         *
+         * @param config 客户端配置
+         * @return 响应解压器，没有配置压缩算法时返回null
+         */
+        private static CompressDecoder buildCompressDecoder(ClientConfig config) {
+            Compressor compressor = config.getCompressor();
+            if (compressor == null) {
+                return null;
+            }
+            Compressor[] compressors = new Compressor[(Datagram.COMPRESSOR_MASK >> Datagram.COMPRESSOR_SHIFT) + 1];
+            compressors[compressor.id()] = compressor;
+            return new CompressDecoder(compressors, config.getMaxFrameLength());
+        }
+
+        /**
+         * 初始化连接的处理链
+         *
+         * @param pipeline 连接的处理链
+         */
+        private void initPipeline(ChannelPipeline pipeline) {
+            int heartbeat = Math.max(config.getHeartbeat(), 1);
+            pipeline.addLast(new CustomFrameDecoder(config.getMaxFrameLength()));
+            if (compressDecoder != null) {
+                pipeline.addLast(compressDecoder);
+            }
+            pipeline.addLast(new IdleStateHandler(0, heartbeat, 0), new ClientHandler(config.getCompressor(), config
+                    .getCompressThreshold()));
+            if (!autoFlush) {
+                // 写出合并处理器必须在最前面（靠近head）
+                pipeline.addFirst(new FlushBatchHandler(config.getFlushBatchSize(), config.getFlushMaxDelay()));
+            }
+            if (sslContext != null) {
+                // TLS处理器必须在最前面（靠近head）；传入服务端地址，JDK会按地址缓存会话，重连时尝试复用
+                SslHandler sslHandler = sslContext.newHandler(pipeline.channel().alloc(), config.getHost(), config
+                        .getPort());
+                if (config.getSslHandshakeTimeout() > 0) {
+                    sslHandler.setHandshakeTimeoutMillis(config.getSslHandshakeTimeout());
+                }
+                pipeline.addFirst(sslHandler);
+            }
+        }
+    }
+}
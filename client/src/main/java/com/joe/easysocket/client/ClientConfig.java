@@ -0,0 +1,68 @@
+package com.joe.easysocket.client;
+
+import com.joe.easysocket.server.ext.Compressor;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.ssl.SslContext;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * 客户端配置
+ *
+ * @author joe
+ */
+@Builder
+@Data
+public class ClientConfig {
+    //服务端地址
+    @Builder.Default
+    private String host = "127.0.0.1";
+    //服务端端口
+    @Builder.Default
+    private int port = 10051;
+    //服务端的Unix domain socket路径，不为null时通过该socket连接服务端并忽略host和port，只能在epoll模型下使用
+    private String domainSocketPath;
+    //连接池大小，请求在连接之间轮询，每个连接上可以同时有多个未响应的请求
+    @Builder.Default
+    private int poolSize = 1;
+    //连接超时时间，单位为毫秒
+    @Builder.Default
+    private int connectTimeout = 3000;
+    //请求超时时间，单位为毫秒，超时后返回的future以TimeoutException结束
+    @Builder.Default
+    private long requestTimeout = 30000;
+    //心跳间隔，单位为秒，连接在该时间内没有写出任何数据时发送一个心跳包，应当小于服务端的心跳周期（最小30秒）
+    @Builder.Default
+    private int heartbeat = 10;
+    //写出合并的消息条数，小于等于1时每条消息都立即flush
+    @Builder.Default
+    private int flushBatchSize = 16;
+    //写出合并时消息的最大延迟，单位为毫秒，小于等于0时在本轮事件循环结束时flush
+    @Builder.Default
+    private int flushMaxDelay = 0;
+    //单个数据报的最大长度（包含head）
+    @Builder.Default
+    private int maxFrameLength = 16 * 1024 * 1024;
+    //IO线程数，小于等于0时使用netty默认值（机器核心数的两倍）
+    @Builder.Default
+    private int workerThreads = 0;
+    //是否使用TLS连接服务端（服务端需要配置证书）
+    @Builder.Default
+    private boolean ssl = false;
+    //信任的服务端证书（PEM格式），为null时使用JDK默认的信任库
+    private File sslTrustCertFile;
+    //外部提供的TLS上下文，不为null时使用TLS连接并忽略sslTrustCertFile
+    private SslContext sslContext;
+    //TLS握手超时时间，单位为毫秒，小于等于0时使用netty默认值
+    @Builder.Default
+    private long sslHandshakeTimeout = 0;
+    //请求body的压缩算法，为null时不压缩；服务端需要开启compression，收到压缩的请求后该连接上的响应也会使用同一个算法压缩
+    private Compressor compressor;
+    //压缩阈值，请求body小于该值时不压缩，单位为byte
+    @Builder.Default
+    private int compressThreshold = 512;
+    //外部提供的IO线程组，为null时客户端自己创建；外部提供的线程组关闭客户端时不会关闭
+    private EventLoopGroup workerGroup;
+}
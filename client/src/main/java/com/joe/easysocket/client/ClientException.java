@@ -0,0 +1,20 @@
+package com.joe.easysocket.client;
+
+import com.joe.easysocket.server.exception.SystemException;
+
+/**
+ * 客户端异常，连接失败、连接关闭导致请求失败时抛出
+ *
+ * @author joe
+ */
+public class ClientException extends SystemException {
+    private static final long serialVersionUID = -2281785473307254117L;
+
+    public ClientException(String message) {
+        super(message);
+    }
+
+    public ClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
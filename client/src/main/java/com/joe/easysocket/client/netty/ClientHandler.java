@@ -0,0 +1,279 @@
+package com.joe.easysocket.client.netty;
+
+import com.joe.easysocket.client.ClientException;
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.Compressor;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 客户端连接处理器，每个连接都必须new一个；负责：
+ * 1、登记写出的请求，根据响应数据报head中的关联ID（版本1的响应使用InterfaceData的ID）结束对应的请求；
+ * 2、连接写空闲时发送关联ID为0的心跳包（不登记，服务端的回复直接忽略），主动ping时发送带关联ID的心跳包，
+ * 根据服务端心跳回复中的关联ID结束对应的ping；
+ * 3、收到服务端的关闭通知后将连接标记为排空，连接池不再向该连接发送新请求；
+ * 4、连接关闭时以失败结束所有未响应的请求；
+ * 5、配置了压缩算法时压缩body不小于阈值的请求（压缩后没有变小时原样发送），响应的解压由CompressDecoder负责。
+ * <p>
+ * 未响应的请求只在该连接的事件循环中访问，不需要加锁
+ *
+ * @author joe
+ */
+public class ClientHandler extends ChannelDuplexHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ClientHandler.class);
+    //连接是否已经收到服务端关闭通知的属性key
+    private static final AttributeKey<Boolean> DRAINING = AttributeKey.valueOf("easysocket.client.draining");
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+    //MVC请求的数据报类型
+    private static final byte TYPE_MVC = 1;
+    //写空闲时发送的心跳包，关联ID为0，所有连接共享，不可释放
+    private static final ByteBuf IDLE_PING = Unpooled.unreleasableBuffer(DatagramUtil.encode
+            (UnpooledByteBufAllocator.DEFAULT, null, HEARTBEAT, Datagram.VERSION_2, 0));
+    //未响应的请求，key为关联ID
+    private final IntObjectMap<CompletableFuture<InterfaceData>> pending = new IntObjectHashMap<>();
+    //未收到回复的主动ping，key为关联ID（需要服务端开启heartbeatPong，超时的ping会被移除）
+    private final IntObjectMap<CompletableFuture<Void>> pings = new IntObjectHashMap<>();
+    //请求body的压缩算法，为null时不压缩
+    private final Compressor compressor;
+    //压缩阈值，body小于该值时不压缩，单位为byte
+    private final int compressThreshold;
+
+    public ClientHandler() {
+        this(null, 0);
+    }
+
+    /**
+     * @param compressor        请求body的压缩算法，为null时不压缩
+     * @param compressThreshold 压缩阈值，body小于该值时不压缩，单位为byte
+     */
+    public ClientHandler(Compressor compressor, int compressThreshold) {
+        this.compressor = compressor;
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 判断连接是否可以发送新请求
+     *
+     * @param channel 连接
+     * @return 连接可用并且没有收到服务端的关闭通知时返回true
+     */
+    public static boolean usable(Channel channel) {
+        return channel.isActive() && channel.attr(DRAINING).get() == null;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof PingRequest) {
+            PingRequest ping = (PingRequest) msg;
+            if (!ctx.channel().isActive()) {
+                fail(ping.future, promise, new ClientException("连接已经关闭"));
+                return;
+            }
+            pings.put(ping.id, ping.future);
+            ctx.write(DatagramUtil.encode(ctx.alloc(), null, HEARTBEAT, Datagram.VERSION_2, ping.id), promise);
+            return;
+        }
+        if (!(msg instanceof ClientRequest)) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        ClientRequest request = (ClientRequest) msg;
+        if (!ctx.channel().isActive()) {
+            fail(request.getFuture(), promise, new ClientException("连接已经关闭"));
+            return;
+        }
+        //head和body直接写入连接的缓冲区，不经过中间数组
+        ByteBuf buf;
+        try {
+            buf = encode(ctx, request);
+        } catch (Throwable e) {
+            fail(request.getFuture(), promise, new ClientException("请求编码失败", e));
+            return;
+        }
+        pending.put(request.getId(), request.getFuture());
+        ctx.write(buf, promise);
+    }
+
+    /**
+     * 请求或者ping没有写出时同时结束future和写出的promise；void promise失败时会触发exceptionCaught关闭连接，
+     * 而失败已经通过future通知了调用方，所以不结束void promise
+     *
+     * @param future  请求或者ping的future
+     * @param promise 写出的promise
+     * @param cause   失败原因
+     */
+    private static void fail(CompletableFuture<?> future, ChannelPromise promise, ClientException cause) {
+        future.completeExceptionally(cause);
+        if (!promise.isVoid()) {
+            promise.tryFailure(cause);
+        }
+    }
+
+    /**
+     * 将请求编码为版本2的数据报，body不小于压缩阈值并且压缩后变小时写入压缩后的body并设置压缩标志
+     *
+     * @param ctx     ChannelHandlerContext
+     * @param request 请求
+     * @return 编码后的数据报
+     * @throws IOException 压缩失败
+     */
+    private ByteBuf encode(ChannelHandlerContext ctx, ClientRequest request) throws IOException {
+        byte[] body = request.getBody();
+        byte[] compressed;
+        if (compressor == null || body.length < compressThreshold || (compressed = compressor.compress(body, 0, body
+                .length)).length >= body.length) {
+            return DatagramUtil.encode(ctx.alloc(), body, TYPE_MVC, Datagram.VERSION_2, request.getId());
+        }
+        ByteBuf buf = DatagramUtil.encode(ctx.alloc(), compressed, TYPE_MVC, Datagram.VERSION_2, request.getId());
+        int flagsIndex = DatagramUtil.flagsIndex(Datagram.VERSION_2);
+        buf.setByte(flagsIndex, buf.getByte(flagsIndex) | Datagram.FLAG_COMPRESSED | (compressor.id() << Datagram
+                .COMPRESSOR_SHIFT));
+        return buf;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf buf = (ByteBuf) msg;
+        try {
+            int start = buf.readerIndex();
+            byte type = buf.getByte(start + 5);
+            if (type == HEARTBEAT) {
+                //版本1的心跳回复和写空闲心跳包的回复没有关联ID，忽略
+                boolean v2 = (buf.getByte(start) & Datagram.VERSION_MASK) == Datagram.VERSION_2;
+                int id = v2 ? buf.getInt(start + Datagram.CORRELATION_INDEX_V2) : 0;
+                CompletableFuture<Void> ping = id == 0 ? null : pings.remove(id);
+                if (ping != null) {
+                    ping.complete(null);
+                }
+                return;
+            }
+            //关闭通知的body一定为空
+            if (type == Datagram.TYPE_SHUTDOWN && buf.getInt(start + 1) == 0) {
+                logger.info("收到服务端{}的关闭通知，不再使用该连接发送新请求", ctx.channel().remoteAddress());
+                ctx.channel().attr(DRAINING).set(Boolean.TRUE);
+                return;
+            }
+
+            boolean v2 = (buf.getByte(start) & Datagram.VERSION_MASK) == Datagram.VERSION_2;
+            Datagram datagram = DatagramUtil.decode(buf);
+            InterfaceData result = DatagramUtil.readBody(datagram, InterfaceData.class);
+            int id;
+            if (v2) {
+                id = datagram.getCorrelationId();
+            } else if (result != null && result.getId() != null) {
+                try {
+                    id = Integer.parseInt(result.getId());
+                } catch (NumberFormatException e) {
+                    logger.warn("响应{}的ID[{}]不是本客户端生成的关联ID，丢弃", datagram, result.getId());
+                    return;
+                }
+            } else {
+                logger.warn("响应{}中没有关联ID，丢弃", datagram);
+                return;
+            }
+
+            CompletableFuture<InterfaceData> future = pending.remove(id);
+            if (future == null) {
+                logger.debug("请求{}已经超时或者不存在，丢弃响应", id);
+            } else {
+                future.complete(result);
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() == IdleState.WRITER_IDLE) {
+            ctx.writeAndFlush(IDLE_PING.duplicate(), ctx.voidPromise());
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (!pending.isEmpty()) {
+            logger.warn("连接{}关闭，{}个请求未响应", ctx.channel(), pending.size());
+            ClientException cause = new ClientException("连接已经关闭");
+            pending.values().forEach(future -> future.completeExceptionally(cause));
+            pending.clear();
+        }
+        if (!pings.isEmpty()) {
+            ClientException cause = new ClientException("连接已经关闭");
+            pings.values().forEach(ping -> ping.completeExceptionally(cause));
+            pings.clear();
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        logger.warn("连接{}异常，关闭连接", ctx.channel(), cause);
+        ctx.close();
+    }
+
+    /**
+     * 主动ping请求，写入连接后发送一个带关联ID的心跳包，收到关联ID相同的心跳回复后结束future
+     */
+    public static final class PingRequest {
+        //关联ID，不能为0（0为写空闲心跳包使用）
+        private final int id;
+        private final CompletableFuture<Void> future;
+
+        /**
+         * @param id     关联ID，不能为0
+         * @param future ping结果
+         */
+        public PingRequest(int id, CompletableFuture<Void> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 移除超时的请求，可以在任意线程调用
+     *
+     * @param channel 请求所在的连接
+     * @param id      请求的关联ID
+     */
+    public static void remove(Channel channel, int id) {
+        ClientHandler handler = channel.pipeline().get(ClientHandler.class);
+        if (handler != null) {
+            channel.eventLoop().execute(() -> handler.pending.remove(id));
+        }
+    }
+
+    /**
+     * 移除超时的ping，可以在任意线程调用
+     *
+     * @param channel ping所在的连接
+     * @param id      ping的关联ID
+     */
+    public static void removePing(Channel channel, int id) {
+        ClientHandler handler = channel.pipeline().get(ClientHandler.class);
+        if (handler != null) {
+            channel.eventLoop().execute(() -> handler.pings.remove(id));
+        }
+    }
+}
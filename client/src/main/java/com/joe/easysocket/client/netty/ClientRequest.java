@@ -0,0 +1,32 @@
+package com.joe.easysocket.client.netty;
+
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 客户端发出的请求，写入连接后由{@link ClientHandler}登记，收到关联ID相同的响应后结束future
+ *
+ * @author joe
+ */
+@Getter
+public class ClientRequest {
+    //关联ID，同时也是请求InterfaceData的ID
+    private final int id;
+    //请求数据报的body，写出时由{@link ClientHandler}直接编码到连接的缓冲区中
+    private final byte[] body;
+    //请求结果
+    private final CompletableFuture<InterfaceData> future;
+
+    /**
+     * @param id     关联ID
+     * @param body   请求数据报的body
+     * @param future 请求结果
+     */
+    public ClientRequest(int id, byte[] body, CompletableFuture<InterfaceData> future) {
+        this.id = id;
+        this.body = body;
+        this.future = future;
+    }
+}
@@ -0,0 +1,255 @@
+package com.joe.test.easysocket;
+
+import com.joe.easysocket.client.Client;
+import com.joe.easysocket.client.ClientConfig;
+import com.joe.easysocket.server.Server;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DataWorker;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.ext.DeflateCompressor;
+import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.mvc.MvcDataworker;
+import com.joe.easysocket.server.ext.mvc.param.GeneralParam;
+import com.joe.easysocket.server.ext.mvc.resource.annotation.Path;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 端到端压测：在当前进程中启动服务端和MVC数据处理器，使用客户端通过localhost按配置的请求比例压测，输出吞吐量和延迟分布，
+ * 用于比较不同版本、不同配置下单机的处理能力。
+ * <p>
+ * 参数通过系统属性传入：
+ * -Dport=10052 服务端端口；
+ * -Dconnections=16 连接数；
+ * -Dconcurrency=256 同时未响应的请求数上限；
+ * -Dwarmup=5 预热时间，单位为秒，预热期间的数据不统计；
+ * -Dduration=30 压测时间，单位为秒；
+ * -Dmix=10,80,10 心跳、小请求、大请求的比例；
+ * -DlargeSize=65536 大请求的body大小，单位为byte；
+ * -DflushBatch=16 客户端和服务端写出合并的条数；
+ * -Dinline=false 服务端是否在IO线程中直接处理接收到的数据（直接交给数据处理器，不经过队列）；
+ * -Duds=false 是否通过Unix domain socket连接（只能在epoll下使用）；
+ * -Dtls=false 是否使用TLS连接（使用自签名证书）；
+ * -Dacceptors=1 服务端监听端口的通道数（SO_REUSEPORT，只能在epoll下使用）；
+ * -Dcompression=false 客户端是否使用deflate压缩不小于512byte的请求（服务端对该连接的响应也会压缩）
+ * <p>
+ * 每个请求在发出时标记所处的阶段，预热期间发出的请求即使在预热结束后才完成也不会统计
+ *
+ * @author joe
+ */
+public class LoadTest {
+    //请求类型
+    private static final String[] OPS = {"heartbeat", "small", "large"};
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("port", 10052);
+        int connections = Integer.getInteger("connections", 16);
+        int concurrency = Integer.getInteger("concurrency", 256);
+        int warmup = Integer.getInteger("warmup", 5);
+        int duration = Integer.getInteger("duration", 30);
+        int largeSize = Integer.getInteger("largeSize", 64 * 1024);
+        int flushBatch = Integer.getInteger("flushBatch", 16);
+        boolean inline = Boolean.getBoolean("inline");
+        boolean uds = Boolean.getBoolean("uds");
+        boolean tls = Boolean.getBoolean("tls");
+        int acceptors = Integer.getInteger("acceptors", 1);
+        boolean compression = Boolean.getBoolean("compression");
+        int[] mix = Arrays.stream(System.getProperty("mix", "10,80,10").split(",")).mapToInt(s -> Integer.parseInt
+                (s.trim())).toArray();
+        int total = Arrays.stream(mix).sum();
+
+        System.out.println("启动服务端，端口：" + port + "；是否在IO线程中直接处理数据：" + inline + "；Unix domain socket：" +
+                uds + "；TLS：" + tls + "；acceptors：" + acceptors + "；压缩：" + compression);
+        PublishCenter publishCenter = new DefaultPublishCenter();
+        CustomDeque<ProtocolData> deque = new CustomDequeImpl<>();
+        //数据处理器由服务端管理，服务端关闭时在排空之后关闭数据处理器
+        DataWorker dataworker = new MvcDataworker(MvcDataworker.MvcDataworkerConfig.builder().publishCenter
+                (publishCenter).deque(deque).managed(true).build());
+        ServerConfig.ServerConfigBuilder serverConfig = ServerConfig.builder().port(port).publishCenter
+                (publishCenter).deque(deque).dataWorker(dataworker).inlineReceive(inline).ioHeartbeat(true)
+                .heartbeatPong(true).flushBatchSize(flushBatch).acceptors(acceptors).compression(compression)
+                .shutdownTimeout(0);
+        ClientConfig.ClientConfigBuilder clientConfig = ClientConfig.builder().port(port).poolSize(connections)
+                .flushBatchSize(flushBatch).compressor(compression ? new DeflateCompressor() : null);
+        File socket = new File(System.getProperty("java.io.tmpdir"), "easysocket-load.sock");
+        if (uds) {
+            serverConfig.tcpEnabled(false).domainSocketPath(socket.getPath());
+            clientConfig.domainSocketPath(socket.getPath());
+        }
+        SelfSignedCertificate cert = tls ? new SelfSignedCertificate() : null;
+        if (tls) {
+            serverConfig.sslCertFile(cert.certificate()).sslKeyFile(cert.privateKey());
+            clientConfig.ssl(true).sslTrustCertFile(cert.certificate());
+        }
+        Server server = Server.buildDefault(serverConfig.build());
+        server.start(null);
+        dataworker.start("压测", null);
+
+        Client client = Client.buildDefault(clientConfig.build());
+        client.start();
+
+        String small = "{\"data\":\"hello\"}";
+        char[] chars = new char[largeSize];
+        Arrays.fill(chars, 'a');
+        String large = "{\"data\":\"" + new String(chars) + "\"}";
+
+        System.out.println("连接数：" + connections + "；并发数：" + concurrency + "；请求比例（心跳/小请求/大请求）：" +
+                Arrays.toString(mix) + "；预热" + warmup + "秒；压测" + duration + "秒");
+        Histogram[] histograms = new Histogram[OPS.length];
+        for (int i = 0; i < OPS.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        Semaphore permits = new Semaphore(concurrency);
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(duration);
+        boolean warm = warmup <= 0;
+        long start = warm ? System.nanoTime() : warmupEnd;
+
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            if (!warm && now >= warmupEnd) {
+                warm = true;
+            }
+            if (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                continue;
+            }
+
+            int op = pick(mix, total);
+            long begin = System.nanoTime();
+            CompletableFuture<?> future = op == 0 ? client.ping() : client.invoke("bench/echo", op == 1 ? small :
+                    large);
+            //预热期间发出的请求不统计
+            Histogram histogram = warm ? histograms[op] : null;
+            future.whenComplete((result, e) -> {
+                if (histogram != null) {
+                    histogram.record(System.nanoTime() - begin, e != null);
+                }
+                permits.release();
+            });
+        }
+        permits.acquire(concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        System.out.printf("%-10s %10s %8s %12s %10s %10s %10s %10s%n", "类型", "请求数", "失败", "吞吐量(/s)",
+                "p50(us)", "p99(us)", "p999(us)", "max(us)");
+        long count = 0;
+        for (int i = 0; i < OPS.length; i++) {
+            Histogram h = histograms[i];
+            count += h.count();
+            System.out.printf("%-10s %10d %8d %12.1f %10d %10d %10d %10d%n", OPS[i], h.count(), h.errors(), h
+                    .count() / seconds, h.percentile(0.5) / 1000, h.percentile(0.99) / 1000, h.percentile(0.999) /
+                    1000, h.max() / 1000);
+        }
+        System.out.printf("总吞吐量：%.1f/s%n", count / seconds);
+
+        client.shutdown();
+        server.shutdown(null);
+        if (cert != null) {
+            cert.delete();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 按比例随机选择请求类型
+     *
+     * @param mix   各类型的比例
+     * @param total 比例之和
+     * @return 请求类型
+     */
+    private static int pick(int[] mix, int total) {
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < mix.length; i++) {
+            r -= mix[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return mix.length - 1;
+    }
+
+    /**
+     * 无锁的对数线性延迟直方图，每个2的幂区间分为32个桶，相对误差约3%
+     */
+    private static class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_COUNT);
+        private final AtomicLongArray stats = new AtomicLongArray(3);
+
+        void record(long nanos, boolean error) {
+            if (error) {
+                stats.incrementAndGet(1);
+                return;
+            }
+            buckets.incrementAndGet(index(nanos));
+            stats.incrementAndGet(0);
+            long max;
+            while (nanos > (max = stats.get(2)) && !stats.compareAndSet(2, max, nanos)) {
+                // 重试
+            }
+        }
+
+        long count() {
+            return stats.get(0);
+        }
+
+        long errors() {
+            return stats.get(1);
+        }
+
+        long max() {
+            return stats.get(2);
+        }
+
+        long percentile(double p) {
+            long target = (long) Math.ceil(count() * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) {
+                    return value(i);
+                }
+            }
+            return 0;
+        }
+
+        private static int index(long value) {
+            if (value < 2 * SUB_COUNT) {
+                return (int) Math.max(value, 0);
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+        }
+
+        private static long value(int index) {
+            if (index < 2 * SUB_COUNT) {
+                return index;
+            }
+            int shift = index / SUB_COUNT - 1;
+            return ((long) (index % SUB_COUNT + SUB_COUNT) << shift) + (1L << shift) / 2;
+        }
+    }
+
+    @Path("bench")
+    private static class BenchResource {
+        @Path("echo")
+        public String echo(@GeneralParam("data") String data) {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.joe.test.easysocket.client;
+
+import com.joe.easysocket.client.ClientException;
+import com.joe.easysocket.client.netty.ClientHandler;
+import com.joe.easysocket.client.netty.ClientRequest;
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.Compressor;
+import com.joe.easysocket.server.ext.DeflateCompressor;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.utils.parse.json.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 客户端连接处理器测试：请求和ping的匹配、超时移除、异常响应的丢弃、连接关闭、写出失败以及请求压缩
+ *
+ * @author joe
+ */
+public class ClientHandlerTest {
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+    //MVC请求的数据报类型
+    private static final byte TYPE_MVC = 1;
+    private static final JsonParser parser = JsonParser.getInstance();
+    private EmbeddedChannel channel;
+
+    @Before
+    public void init() {
+        channel = new EmbeddedChannel(new ClientHandler());
+    }
+
+    @Test
+    public void completeByCorrelationId() throws Exception {
+        CompletableFuture<InterfaceData> first = request(1);
+        CompletableFuture<InterfaceData> second = request(2);
+
+        //响应的顺序与请求的顺序无关
+        channel.writeInbound(response(Datagram.VERSION_2, 2, "2"));
+        assertFalse(first.isDone());
+        assertEquals("2", second.get().getId());
+
+        channel.writeInbound(response(Datagram.VERSION_2, 1, "1"));
+        assertEquals("1", first.get().getId());
+    }
+
+    @Test
+    public void dropIllegalV1Id() throws Exception {
+        CompletableFuture<InterfaceData> future = request(1);
+
+        ByteBuf illegal = response(Datagram.VERSION_1, 0, "abc");
+        channel.writeInbound(illegal);
+        assertEquals(0, illegal.refCnt());
+        assertTrue(channel.isActive());
+        assertFalse(future.isDone());
+
+        channel.writeInbound(response(Datagram.VERSION_1, 0, "1"));
+        assertEquals("1", future.get().getId());
+    }
+
+    @Test
+    public void removeTimeoutRequest() {
+        CompletableFuture<InterfaceData> future = request(1);
+        ClientHandler.remove(channel, 1);
+        channel.runPendingTasks();
+
+        //已经移除的请求在连接关闭时不会再被结束
+        channel.finish();
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    public void matchPingById() throws Exception {
+        CompletableFuture<Void> first = ping(1);
+        CompletableFuture<Void> second = ping(2);
+
+        //写空闲心跳包的回复关联ID为0，不会结束任何ping
+        channel.writeInbound(pong(0));
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        channel.writeInbound(pong(2));
+        assertFalse(first.isDone());
+        assertTrue(second.isDone());
+
+        channel.writeInbound(pong(1));
+        first.get();
+    }
+
+    @Test
+    public void idlePingNotTracked() {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.WRITER_IDLE_STATE_EVENT);
+        ByteBuf idle = channel.readOutbound();
+        assertEquals(HEARTBEAT, idle.getByte(idle.readerIndex() + 5));
+        assertEquals(0, idle.getInt(idle.readerIndex() + Datagram.CORRELATION_INDEX_V2));
+        idle.release();
+
+        CompletableFuture<Void> ping = ping(1);
+        channel.writeInbound(pong(0));
+        assertFalse(ping.isDone());
+    }
+
+    @Test
+    public void removeTimeoutPing() {
+        CompletableFuture<Void> ping = ping(1);
+        ClientHandler.removePing(channel, 1);
+        channel.runPendingTasks();
+
+        channel.writeInbound(pong(1));
+        channel.finish();
+        assertFalse(ping.isDone());
+    }
+
+    @Test
+    public void failPendingOnClose() throws Exception {
+        CompletableFuture<InterfaceData> request = request(1);
+        CompletableFuture<Void> ping = ping(2);
+        channel.finish();
+
+        assertFailed(request);
+        assertFailed(ping);
+    }
+
+    @Test
+    public void failPromiseOnClosedChannel() throws Exception {
+        //关闭后的EmbeddedChannel会移除所有处理器，使用始终不可用的连接模拟连接已经关闭但处理器还没有移除
+        channel = new InactiveChannel(new ClientHandler());
+        CompletableFuture<InterfaceData> request = new CompletableFuture<>();
+        ChannelFuture write = channel.writeAndFlush(new ClientRequest(1, new byte[0], request));
+        CompletableFuture<Void> ping = new CompletableFuture<>();
+        ChannelFuture pingWrite = channel.writeAndFlush(new ClientHandler.PingRequest(2, ping));
+
+        assertFailed(request);
+        assertFailed(ping);
+        assertTrue(write.cause() instanceof ClientException);
+        assertTrue(pingWrite.cause() instanceof ClientException);
+    }
+
+    @Test
+    public void failPromiseOnEncodeError() throws Exception {
+        channel = new EmbeddedChannel(new ClientHandler(new FailingCompressor(), 0));
+        CompletableFuture<InterfaceData> request = new CompletableFuture<>();
+        ChannelFuture write = channel.writeAndFlush(new ClientRequest(1, new byte[10], request));
+
+        assertFailed(request);
+        assertTrue(write.cause() instanceof ClientException);
+        //编码失败只影响当前请求，连接仍然可用
+        assertTrue(channel.isActive());
+    }
+
+    @Test
+    public void drainOnShutdownNotice() {
+        assertTrue(ClientHandler.usable(channel));
+        channel.writeInbound(DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, Datagram.TYPE_SHUTDOWN,
+                Datagram.VERSION_2, 0));
+        assertFalse(ClientHandler.usable(channel));
+    }
+
+    @Test
+    public void keepUsableOnAppType2() {
+        //类型2由应用使用（文件传输），不是关闭通知
+        channel.writeInbound(DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, (byte) 2, Datagram
+                .VERSION_2, 0));
+        assertTrue(ClientHandler.usable(channel));
+    }
+
+    @Test
+    public void compressLargeRequest() throws Exception {
+        DeflateCompressor compressor = new DeflateCompressor();
+        channel = new EmbeddedChannel(new ClientHandler(compressor, 512));
+
+        byte[] small = new byte[100];
+        channel.writeOutbound(new ClientRequest(1, small, new CompletableFuture<>()));
+        ByteBuf buf = channel.readOutbound();
+        assertEquals(0, DatagramUtil.flags(buf, buf.readerIndex()) & Datagram.FLAG_COMPRESSED);
+        buf.release();
+
+        byte[] large = new byte[4096];
+        Arrays.fill(large, (byte) 'a');
+        channel.writeOutbound(new ClientRequest(2, large, new CompletableFuture<>()));
+        buf = channel.readOutbound();
+        int flags = DatagramUtil.flags(buf, buf.readerIndex());
+        assertTrue((flags & Datagram.FLAG_COMPRESSED) != 0);
+        assertEquals(DeflateCompressor.ID, (flags & Datagram.COMPRESSOR_MASK) >> Datagram.COMPRESSOR_SHIFT);
+        int len = buf.getInt(buf.readerIndex() + 1);
+        assertTrue(len < large.length);
+        byte[] body = new byte[len];
+        buf.getBytes(buf.readerIndex() + Datagram.HEAD_LENGTH_V2, body);
+        assertArrayEquals(large, compressor.decompress(body, 0, len, large.length));
+        buf.release();
+    }
+
+    private CompletableFuture<InterfaceData> request(int id) {
+        CompletableFuture<InterfaceData> future = new CompletableFuture<>();
+        byte[] body = parser.toJson(new InterfaceData(String.valueOf(id), "test", null)).getBytes();
+        channel.writeOutbound(new ClientRequest(id, body, future));
+        ByteBuf buf = channel.readOutbound();
+        assertEquals(id, buf.getInt(buf.readerIndex() + Datagram.CORRELATION_INDEX_V2));
+        buf.release();
+        return future;
+    }
+
+    private CompletableFuture<Void> ping(int id) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        channel.writeOutbound(new ClientHandler.PingRequest(id, future));
+        ByteBuf buf = channel.readOutbound();
+        assertEquals(id, buf.getInt(buf.readerIndex() + Datagram.CORRELATION_INDEX_V2));
+        buf.release();
+        return future;
+    }
+
+    private static ByteBuf response(byte version, int correlationId, String id) {
+        byte[] body = parser.toJson(new InterfaceData(id, "test", "ok")).getBytes();
+        return DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, body, TYPE_MVC, version, correlationId);
+    }
+
+    private static ByteBuf pong(int correlationId) {
+        return DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, HEARTBEAT, Datagram.VERSION_2,
+                correlationId);
+    }
+
+    private static void assertFailed(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("连接关闭后请求应当失败");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClientException);
+        }
+    }
+
+    /**
+     * 始终不可用的连接
+     */
+    private static class InactiveChannel extends EmbeddedChannel {
+        private InactiveChannel(ChannelHandler handler) {
+            super(handler);
+        }
+
+        @Override
+        public boolean isActive() {
+            return false;
+        }
+    }
+
+    /**
+     * 压缩总是失败的压缩器
+     */
+    private static class FailingCompressor implements Compressor {
+        @Override
+        public int id() {
+            return 1;
+        }
+
+        @Override
+        public byte[] compress(byte[] data, int offset, int length) throws IOException {
+            throw new IOException("压缩失败");
+        }
+
+        @Override
+        public byte[] decompress(byte[] data, int offset, int length, int maxLength) throws IOException {
+            throw new IOException("解压失败");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.joe.test.easysocket.client;
+
+import com.joe.easysocket.client.Client;
+import com.joe.easysocket.client.ClientConfig;
+import com.joe.easysocket.server.Server;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.protocol.ServerConfig;
+import com.joe.easysocket.server.exception.ServerStartException;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 客户端与服务端的联调测试：主动ping通过心跳回复中的关联ID匹配，服务端不回复时ping超时，TLS连接，Unix domain
+ * socket连接以及服务端对已经存在的socket文件的处理
+ *
+ * @author joe
+ */
+public class ClientTest {
+    private static final int PORT = 10061;
+    private Server server;
+    private Client client;
+    private EventLoopGroup group;
+    private File socket;
+
+    @After
+    public void destroy() throws Exception {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (server != null) {
+            server.shutdown(null);
+        }
+        if (group != null) {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+        if (socket != null) {
+            socket.delete();
+        }
+    }
+
+    @Test
+    public void ping() throws Exception {
+        start(true, 3000);
+        for (int i = 0; i < 10; i++) {
+            client.ping().get(3, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void pingTimeout() throws Exception {
+        start(false, 200);
+        try {
+            client.ping().get(3, TimeUnit.SECONDS);
+            fail("服务端没有开启心跳回复，ping应当超时");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void tlsPing() throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        try {
+            server = Server.buildDefault(serverConfig(true).sslCertFile(cert.certificate()).sslKeyFile(cert
+                    .privateKey()).build());
+            server.start(null);
+            client = Client.buildDefault(ClientConfig.builder().port(PORT).requestTimeout(3000).ssl(true)
+                    .sslTrustCertFile(cert.certificate()).build());
+            client.start();
+            client.ping().get(3, TimeUnit.SECONDS);
+        } finally {
+            cert.delete();
+        }
+    }
+
+    @Test
+    public void domainSocketPing() throws Exception {
+        initDomainSocket();
+        server = Server.buildDefault(serverConfig(true).tcpEnabled(false).domainSocketPath(socket.getPath())
+                .build());
+        server.start(null);
+        client = Client.buildDefault(ClientConfig.builder().domainSocketPath(socket.getPath()).requestTimeout
+                (3000).build());
+        client.start();
+        for (int i = 0; i < 10; i++) {
+            client.ping().get(3, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void removeStaleDomainSocket() throws Exception {
+        initDomainSocket();
+        //监听后关闭，netty关闭时会删除socket文件，所以先创建一个硬链接，留下没有进程监听的socket文件
+        File bind = new File(socket.getPath() + ".bind");
+        Channel channel = bindDomainSocket(bind);
+        Files.createLink(socket.toPath(), bind.toPath());
+        channel.close().syncUninterruptibly();
+        bind.delete();
+        assertTrue(socket.exists());
+
+        server = Server.buildDefault(serverConfig(true).tcpEnabled(false).domainSocketPath(socket.getPath())
+                .build());
+        server.start(null);
+        client = Client.buildDefault(ClientConfig.builder().domainSocketPath(socket.getPath()).requestTimeout
+                (3000).build());
+        client.start();
+        client.ping().get(3, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void keepListeningDomainSocket() throws Exception {
+        initDomainSocket();
+        Channel listening = bindDomainSocket(socket);
+        try {
+            startDomainSocketServerFail();
+            assertTrue(socket.exists());
+        } finally {
+            listening.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void keepRegularFile() throws Exception {
+        initDomainSocket();
+        Files.write(socket.toPath(), new byte[]{1});
+        startDomainSocketServerFail();
+        assertTrue(socket.exists());
+        assertFalse(Files.isDirectory(socket.toPath()));
+    }
+
+    /**
+     * 初始化Unix domain socket测试使用的线程组和socket路径，epoll不可用时跳过测试
+     */
+    private void initDomainSocket() throws Exception {
+        Assume.assumeTrue(Epoll.isAvailable());
+        group = new EpollEventLoopGroup(1);
+        socket = File.createTempFile("easysocket", ".sock");
+        socket.delete();
+    }
+
+    /**
+     * 在指定路径上直接监听，模拟其他进程
+     */
+    private Channel bindDomainSocket(File file) {
+        return new ServerBootstrap().group(group).channel(EpollServerDomainSocketChannel.class).childHandler(new
+                ChannelInboundHandlerAdapter()).bind(new DomainSocketAddress(file.getPath())).syncUninterruptibly()
+                .channel();
+    }
+
+    /**
+     * 使用外部线程组启动只监听Unix domain socket的服务端，启动应当失败
+     */
+    private void startDomainSocketServerFail() throws Exception {
+        Server failed = Server.buildDefault(serverConfig(true).tcpEnabled(false).domainSocketPath(socket.getPath())
+                .bossGroup(group).workerGroup(group).build());
+        try {
+            failed.start(null);
+            fail("socket文件不能删除时服务端应当启动失败");
+        } catch (ServerStartException e) {
+            //启动失败
+        }
+    }
+
+    private void start(boolean pong, long requestTimeout) throws Exception {
+        server = Server.buildDefault(serverConfig(pong).build());
+        server.start(null);
+        client = Client.buildDefault(ClientConfig.builder().port(PORT).requestTimeout(requestTimeout).build());
+        client.start();
+    }
+
+    private static ServerConfig.ServerConfigBuilder serverConfig(boolean pong) {
+        CustomDeque<ProtocolData> deque = new CustomDequeImpl<>();
+        return ServerConfig.builder().port(PORT).publishCenter(new DefaultPublishCenter()).deque(deque).ioHeartbeat
+                (true).heartbeatPong(pong).shutdownTimeout(0);
+    }
+}
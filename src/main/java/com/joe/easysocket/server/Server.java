@@ -1,29 +1,79 @@
 package com.joe.easysocket.server;
 
 import com.joe.easysocket.server.common.Function;
+import com.joe.easysocket.server.data.Datagram;
 import com.joe.easysocket.server.exception.ServerStartException;
+import com.joe.easysocket.server.ext.Compressor;
+import com.joe.easysocket.server.ext.DataWorker;
+import com.joe.easysocket.server.ext.DeflateCompressor;
 import com.joe.easysocket.server.ext.EventCenter;
 import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.StreamHandler;
 import com.joe.easysocket.server.protocol.Protocol;
 import com.joe.easysocket.server.protocol.ProtocolImpl;
 import com.joe.easysocket.server.protocol.ServerConfig;
+import com.joe.easysocket.server.protocol.Transport;
+import com.joe.easysocket.server.protocol.UnwritablePolicy;
+import com.joe.easysocket.server.protocol.netty.AdmissionControl;
+import com.joe.easysocket.server.protocol.netty.AllocatorMetric;
+import com.joe.easysocket.server.protocol.netty.ChunkedDatagramHandler;
+import com.joe.easysocket.server.protocol.netty.CompressDecoder;
+import com.joe.easysocket.server.protocol.netty.CompressEncoder;
 import com.joe.easysocket.server.protocol.netty.ConnectorManager;
 import com.joe.easysocket.server.protocol.netty.CustomFrameDecoder;
 import com.joe.easysocket.server.protocol.netty.DatagramDecoder;
 import com.joe.easysocket.server.protocol.netty.DatagramEncoder;
+import com.joe.easysocket.server.protocol.netty.FlushBatchHandler;
+import com.joe.easysocket.server.protocol.netty.HeartbeatHandler;
+import com.joe.easysocket.server.protocol.netty.RouteFilterHandler;
+import com.joe.easysocket.server.protocol.netty.UdpDatagramHandler;
+import com.joe.utils.common.StringUtils;
+import com.joe.utils.concurrent.ThreadUtil;
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -47,6 +97,13 @@ public interface Server {
      */
     void start(Function callback) throws Exception;
 
+    /**
+     * 获取服务器缓冲区分配器的统计信息
+     *
+     * @return 缓冲区分配器的统计信息，服务器没有使用内存池分配器时返回null
+     */
+    AllocatorMetric allocatorMetric();
+
     /**
      * 构建默认的netty实现的server
      *
@@ -66,17 +123,34 @@ public interface Server {
         private static final Logger logger = LoggerFactory.getLogger(NettyServer.class);
         // 关闭锁
         private static final Object shutdownLock = new Object();
-        // 是否是linux系统
-        private static boolean linux;
+        // epoll是否可用
+        private static final boolean epollAvailable = Epoll.isAvailable();
+        // UDP包的最大长度
+        private static final int MAX_UDP_PACKET = 64 * 1024;
+        // 文件类型掩码和socket文件类型（st_mode）
+        private static final int S_IFMT = 0170000;
+        private static final int S_IFSOCK = 0140000;
         //当前服务器是否运行，只有调用start才会改变状态
         private AtomicBoolean start = new AtomicBoolean(false);
         // 接受请求的线程组，默认是机器核心的两倍
         private EventLoopGroup mainGroup;
         // 处理请求的线程组，默认是机器核心的两倍
         private EventLoopGroup workerGroup;
+        // 外部提供的接受请求的线程组
+        private final EventLoopGroup externalBossGroup;
+        // 外部提供的处理请求的线程组
+        private final EventLoopGroup externalWorkerGroup;
+        // 当前监听的所有channel（TCP、UDP等），关闭服务器时关闭
+        private final List<Channel> serverChannels = new ArrayList<>();
 
         // 监听端口
         private final int port;
+        // UDP监听端口，小于等于0时不监听UDP
+        private final int udpPort;
+        // 是否监听TCP端口
+        private final boolean tcpEnabled;
+        // Unix domain socket的路径，为null时不监听
+        private final String domainSocketPath;
         //协议栈
         private final Protocol protocol;
         //发布中心
@@ -87,13 +161,82 @@ public interface Server {
         private final int backlog;
         //是否延迟发送
         private final boolean nodelay;
+        //是否开启零拷贝接收
+        private final boolean zeroCopy;
+        //心跳处理器，为null时心跳包进入协议栈处理
+        private final HeartbeatHandler heartbeatHandler;
+        //写出合并的消息条数，小于等于1时不合并
+        private final int flushBatchSize;
+        //写出合并时消息的最大延迟，单位为毫秒
+        private final int flushMaxDelay;
+        //传输层实现
+        private final Transport transport;
+        //接受请求的线程数
+        private final int bossThreads;
+        //监听同一个TCP端口的通道数
+        private final int acceptors;
+        //处理请求的线程数
+        private final int workerThreads;
+        //epoll是否使用边缘触发
+        private final boolean edgeTriggered;
+        //缓冲区分配器
+        private final ByteBufAllocator allocator;
+        //接收缓冲区分配器，为null时使用netty默认值
+        private final RecvByteBufAllocator recvAllocator;
+        //写出缓冲区水位线，为null时使用netty默认值
+        private final WriteBufferWaterMark waterMark;
+        //单个连接未写出数据的上限
+        private final long maxOutboundBytes;
+        //通道不可写时的处理策略
+        private final UnwritablePolicy unwritablePolicy;
+        //CLOSE策略下通道持续不可写多长时间后关闭连接，单位为毫秒
+        private final long unwritableTimeout;
+        //单个数据报的最大长度（包含head）
+        private final int maxFrameLength;
+        //分块数据报流处理器，为null时不处理分块数据报
+        private final StreamHandler streamHandler;
+        //单个分块数据流最多缓存的分块数
+        private final int maxPendingChunks;
+        //处理分块数据流的线程池
+        private ExecutorService streamService;
+        //解压器，为null时不开启压缩
+        private final CompressDecoder compressDecoder;
+        //压缩器，为null时不开启压缩
+        private final CompressEncoder compressEncoder;
+        //路由过滤处理器，为null时不过滤
+        private final RouteFilterHandler routeFilterHandler;
+        //TLS上下文，为null时不开启TLS
+        private final SslContext sslContext;
+        //TLS握手超时时间，单位为毫秒
+        private final long sslHandshakeTimeout;
+        //连接准入控制，为null时不限制
+        private final AdmissionControl admission;
+        //UDP虚拟连接数的上限
+        private final int maxUdpChannels;
+        //同一进程中的数据处理器，排空协议栈之后关闭，为null时不管理
+        private final DataWorker dataWorker;
+        //关闭时排空的最长等待时间，单位为毫秒，小于等于0时不排空
+        private final long shutdownTimeout;
 
         private NettyServer(ServerConfig serverConfig) {
             this.port = serverConfig.getPort() <= 0 ? 10051 : serverConfig.getPort();
+            this.udpPort = serverConfig.getUdpPort();
+            this.sslContext = buildSslContext(serverConfig);
+            this.sslHandshakeTimeout = serverConfig.getSslHandshakeTimeout();
+            this.dataWorker = serverConfig.getDataWorker();
+            this.admission = buildAdmission(serverConfig);
+            this.maxUdpChannels = serverConfig.getMaxUdpChannels() <= 0 ? 4096 : serverConfig.getMaxUdpChannels();
+            this.shutdownTimeout = serverConfig.getShutdownTimeout();
+            this.tcpEnabled = serverConfig.isTcpEnabled();
+            this.domainSocketPath = StringUtils.isEmpty(serverConfig.getDomainSocketPath()) ? null : serverConfig
+                    .getDomainSocketPath();
             this.publishCenter = serverConfig.getPublishCenter();
             this.protocol = serverConfig.getProtocol() == null ? ProtocolImpl.builder().channel(serverConfig
-                    .getChannel()).publishCenter(publishCenter).deque(serverConfig.getDeque()).heartbeaat(serverConfig.getHeartbeat()).build() : serverConfig
-                    .getProtocol();
+                    .getChannel()).publishCenter(publishCenter).deque(serverConfig.getDeque()).heartbeaat(serverConfig
+                    .getHeartbeat()).inline(serverConfig.isInlineReceive()).build() : serverConfig.getProtocol();
+            if (dataWorker != null) {
+                this.protocol.register(dataWorker);
+            }
             if (serverConfig.getEventCenters() != null) {
                 serverConfig.getEventCenters().forEach(this.protocol::register);
             }
@@ -101,16 +244,171 @@ public interface Server {
             this.eventCenters = serverConfig.getEventCenters();
             this.backlog = serverConfig.getBacklog() <= 0 ? 512 : serverConfig.getBacklog();
             this.nodelay = serverConfig.isNodelay();
+            this.zeroCopy = serverConfig.isZeroCopy();
+            this.heartbeatHandler = serverConfig.isIoHeartbeat() ? new HeartbeatHandler(serverConfig
+                    .isHeartbeatPong()) : null;
+            this.flushBatchSize = serverConfig.getFlushBatchSize();
+            this.flushMaxDelay = serverConfig.getFlushMaxDelay();
+            this.transport = serverConfig.getTransport() == null ? Transport.AUTO : serverConfig.getTransport();
+            this.acceptors = Math.max(serverConfig.getAcceptors(), 1);
+            // 每个接受连接的通道需要独占一个线程
+            this.bossThreads = serverConfig.getBossThreads() <= 0 ? 0 : Math.max(serverConfig.getBossThreads(),
+                    acceptors);
+            this.workerThreads = Math.max(serverConfig.getWorkerThreads(), 0);
+            this.edgeTriggered = serverConfig.isEdgeTriggered();
+            this.externalWorkerGroup = serverConfig.getWorkerGroup();
+            this.externalBossGroup = serverConfig.getBossGroup() == null ? externalWorkerGroup : serverConfig
+                    .getBossGroup();
+            this.allocator = buildAllocator(serverConfig);
+            this.recvAllocator = buildRecvAllocator(serverConfig);
+            this.waterMark = buildWaterMark(serverConfig);
+            this.maxOutboundBytes = serverConfig.getMaxOutboundBytes();
+            this.unwritablePolicy = serverConfig.getUnwritablePolicy() == null ? UnwritablePolicy.PARK : serverConfig
+                    .getUnwritablePolicy();
+            this.unwritableTimeout = serverConfig.getUnwritableTimeout();
+            this.maxFrameLength = serverConfig.getMaxFrameLength() <= 16 ? Datagram.MAX_LENGTH : serverConfig
+                    .getMaxFrameLength();
+            this.streamHandler = serverConfig.getStreamHandler();
+            this.maxPendingChunks = serverConfig.getMaxPendingChunks();
+            this.routeFilterHandler = serverConfig.getRouteFilter() == null ? null : new RouteFilterHandler
+                    (serverConfig.getRouteFilter());
+            if (serverConfig.isCompression()) {
+                this.compressDecoder = new CompressDecoder(buildCompressors(serverConfig), maxFrameLength);
+                this.compressEncoder = new CompressEncoder(serverConfig.getCompressThreshold());
+            } else {
+                this.compressDecoder = null;
+                this.compressEncoder = null;
+            }
         }
 
-        static {
-            if (System.getProperty("os.name").contains("Linux")) {
-                logger.debug("当前系统是linux");
-                linux = true;
-            } else {
-                logger.debug("当前系统是windows");
-                linux = false;
+        /**
+         * 根据配置构建压缩算法表
+         *
+         * @param config 服务器配置
+         * @return 压缩算法表，下标为压缩算法ID
+         */
+        private static Compressor[] buildCompressors(ServerConfig config) {
+            Compressor[] compressors = new Compressor[(Datagram.COMPRESSOR_MASK >> Datagram.COMPRESSOR_SHIFT) + 1];
+            compressors[DeflateCompressor.ID] = new DeflateCompressor();
+            if (config.getCompressors() != null) {
+                for (Compressor compressor : config.getCompressors()) {
+                    int id = compressor.id();
+                    if (id < 0 || id >= compressors.length) {
+                        throw new ServerStartException("压缩算法" + compressor + "的ID不合法：" + id);
+                    }
+                    compressors[id] = compressor;
+                }
+            }
+            return compressors;
+        }
+
+        /**
+         * 根据配置构建TLS上下文，使用JDK的SSLEngine；服务端会缓存会话，客户端重连时可以复用会话跳过完整握手（JDK 13
+         * 及以上默认还会启用session ticket）
+         *
+         * @param config 服务器配置
+         * @return TLS上下文，没有配置证书时返回null
+         */
+        private static SslContext buildSslContext(ServerConfig config) {
+            if (config.getSslContext() != null) {
+                return config.getSslContext();
+            }
+            if (config.getSslCertFile() == null || config.getSslKeyFile() == null) {
+                return null;
+            }
+            try {
+                return SslContextBuilder.forServer(config.getSslCertFile(), config.getSslKeyFile(), config
+                        .getSslKeyPassword()).sslProvider(SslProvider.JDK).sessionCacheSize(config
+                        .getSslSessionCacheSize()).sessionTimeout(config.getSslSessionTimeout()).build();
+            } catch (SSLException e) {
+                throw new ServerStartException("TLS上下文初始化失败", e);
+            }
+        }
+
+        /**
+         * 根据配置构建连接准入控制
+         *
+         * @param config 服务器配置
+         * @return 连接准入控制，没有配置任何限制时返回null
+         */
+        private static AdmissionControl buildAdmission(ServerConfig config) {
+            if (config.getMaxConnections() <= 0 && config.getMaxConnectionsPerIp() <= 0 && config.getAcceptRate() <=
+                    0 && config.getMessageRate() <= 0) {
+                return null;
+            }
+            logger.debug("最大连接数：{}；单个IP最大连接数：{}；每秒新建连接数：{}；单个连接每秒消息数：{}", config
+                    .getMaxConnections(), config.getMaxConnectionsPerIp(), config.getAcceptRate(), config
+                    .getMessageRate());
+            return new AdmissionControl(config.getMaxConnections(), config.getMaxConnectionsPerIp(), config
+                    .getAcceptRate(), config.getAcceptBurst(), config.getMessageRate(), config.getMessageBurst());
+        }
+
+        /**
+         * 根据配置构建写出缓冲区水位线
+         *
+         * @param config 服务器配置
+         * @return 写出缓冲区水位线，全部为默认值时返回null
+         */
+        private static WriteBufferWaterMark buildWaterMark(ServerConfig config) {
+            int high = config.getWriteBufferHighWaterMark();
+            int low = config.getWriteBufferLowWaterMark();
+            if (high <= 0 && low <= 0) {
+                return null;
+            }
+            high = high <= 0 ? Math.max(64 * 1024, low) : high;
+            low = low <= 0 ? Math.min(32 * 1024, high) : low;
+            logger.debug("写出缓冲区高水位线：{}；低水位线：{}", high, low);
+            return new WriteBufferWaterMark(low, high);
+        }
+
+        /**
+         * 根据配置构建缓冲区分配器，内存池配置全部为默认值时使用netty默认的分配器
+         *
+         * @param config 服务器配置
+         * @return 缓冲区分配器
+         */
+        private static ByteBufAllocator buildAllocator(ServerConfig config) {
+            if (config.getDirectArenas() < 0 && config.getHeapArenas() < 0 && config.getPageSize() <= 0 && config
+                    .getMaxOrder() < 0 && config.getTinyCacheSize() < 0 && config.getSmallCacheSize() < 0 && config
+                    .getNormalCacheSize() < 0) {
+                return ByteBufAllocator.DEFAULT;
             }
+
+            int directArenas = config.getDirectArenas() < 0 ? PooledByteBufAllocator.defaultNumDirectArena() : config
+                    .getDirectArenas();
+            int heapArenas = config.getHeapArenas() < 0 ? PooledByteBufAllocator.defaultNumHeapArena() : config
+                    .getHeapArenas();
+            int pageSize = config.getPageSize() <= 0 ? PooledByteBufAllocator.defaultPageSize() : config.getPageSize();
+            int maxOrder = config.getMaxOrder() < 0 ? PooledByteBufAllocator.defaultMaxOrder() : config.getMaxOrder();
+            int tinyCacheSize = config.getTinyCacheSize() < 0 ? PooledByteBufAllocator.defaultTinyCacheSize() :
+                    config.getTinyCacheSize();
+            int smallCacheSize = config.getSmallCacheSize() < 0 ? PooledByteBufAllocator.defaultSmallCacheSize() :
+                    config.getSmallCacheSize();
+            int normalCacheSize = config.getNormalCacheSize() < 0 ? PooledByteBufAllocator.defaultNormalCacheSize() :
+                    config.getNormalCacheSize();
+            logger.debug("使用自定义内存池，direct arena数量：{}；heap arena数量：{}；页大小：{}；chunk最大阶数：{}；线程缓存大小：{}/{}/{}",
+                    directArenas, heapArenas, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize);
+            return new PooledByteBufAllocator(PlatformDependent.directBufferPreferred(), heapArenas, directArenas,
+                    pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize);
+        }
+
+        /**
+         * 根据配置构建接收缓冲区分配器
+         *
+         * @param config 服务器配置
+         * @return 接收缓冲区分配器，全部为默认值时返回null
+         */
+        private static RecvByteBufAllocator buildRecvAllocator(ServerConfig config) {
+            if (config.getRecvBufferMin() <= 0 && config.getRecvBufferInitial() <= 0 && config.getRecvBufferMax() <=
+                    0) {
+                return null;
+            }
+            int min = config.getRecvBufferMin() <= 0 ? 64 : config.getRecvBufferMin();
+            int max = config.getRecvBufferMax() <= 0 ? Math.max(65536, min) : config.getRecvBufferMax();
+            int initial = config.getRecvBufferInitial() <= 0 ? Math.min(Math.max(1024, min), max) : config
+                    .getRecvBufferInitial();
+            logger.debug("自适应接收缓冲区最小值：{}；初始值：{}；最大值：{}", min, initial, max);
+            return new AdaptiveRecvByteBufAllocator(min, initial, max);
         }
 
         /**
@@ -124,14 +422,35 @@ public interface Server {
                 logger.debug("服务器已经关闭，请勿重复关闭");
             }
             logger.warn("服务器开始关闭................");
-            logger.debug("开始关闭主线程组");
-            mainGroup.shutdownGracefully();
+            //先关闭监听的channel不再接受新连接（外部提供线程组时关闭线程组也不会关闭监听的channel）
+            serverChannels.forEach(Channel::close);
+            serverChannels.clear();
+            if (shutdownTimeout > 0) {
+                //等待已经接收的请求全部被数据处理器应答后通知客户端并关闭连接
+                protocol.drain(shutdownTimeout);
+            }
+            //数据处理器必须在协议栈排空之后关闭，否则排空期间的请求无人处理
+            if (dataWorker != null) {
+                dataWorker.shutdown();
+            }
+            //外部提供的线程组由外部负责关闭
+            if (mainGroup != externalBossGroup) {
+                logger.debug("开始关闭主线程组");
+                mainGroup.shutdownGracefully();
+            }
             mainGroup = null;
 
-            logger.debug("开始关闭工作线程组");
-            workerGroup.shutdownGracefully();
+            if (workerGroup != externalWorkerGroup) {
+                logger.debug("开始关闭工作线程组");
+                workerGroup.shutdownGracefully();
+            }
             workerGroup = null;
 
+            if (streamService != null) {
+                streamService.shutdown();
+                streamService = null;
+            }
+
             protocol.destroy();
 
             logger.warn("服务器关闭完成");
@@ -157,39 +476,51 @@ public interface Server {
                 start.set(true);
                 logger.info("开始初始化服务器");
                 //先初始化
-                logger.debug("开始初始化服务器，初始化端口是：{}；是否延迟发送：{}；等待建立连接的队列长度为：{}", port, nodelay, backlog);
+                logger.debug("开始初始化服务器，初始化端口是：{}；是否延迟发送：{}；等待建立连接的队列长度为：{}；是否零拷贝接收：{}；" +
+                        "写出合并条数：{}；写出合并最大延迟：{}毫秒", port, nodelay, backlog, zeroCopy, flushBatchSize, flushMaxDelay);
+                boolean flushBatch = flushBatchSize > 1;
                 protocol.init();
                 eventCenters.forEach(protocol::register);
-                // 初始化服务端
-                ServerBootstrap bootstrap = new ServerBootstrap();
-                DatagramDecoder datagramDecoder = new DatagramDecoder();
-                DatagramEncoder datagramEncoder = new DatagramEncoder();
-
-                if (linux) {
-                    logger.debug("当前系统是linux系统，采用epoll模型");
-                    mainGroup = new EpollEventLoopGroup();
-                    workerGroup = new EpollEventLoopGroup();
-                    bootstrap.channel(EpollServerSocketChannel.class);
+                DatagramDecoder datagramDecoder = new DatagramDecoder(zeroCopy);
+                DatagramEncoder datagramEncoder = new DatagramEncoder(!flushBatch);
+                if (streamHandler != null) {
+                    streamService = ThreadUtil.createPool(ThreadUtil.PoolType.IO);
+                }
+
+                boolean epoll = useEpoll();
+                if (epoll) {
+                    logger.debug("采用epoll模型，接受请求线程数：{}；处理请求线程数：{}；是否边缘触发：{}", bossThreads,
+                            workerThreads, edgeTriggered);
+                    mainGroup = externalBossGroup == null ? new EpollEventLoopGroup(bossThreads) : externalBossGroup;
+                    workerGroup = externalWorkerGroup == null ? new EpollEventLoopGroup(workerThreads) :
+                            externalWorkerGroup;
                 } else {
-                    logger.debug("当前系统不是linux系统，采用nio模型");
-                    mainGroup = new NioEventLoopGroup();
-                    workerGroup = new NioEventLoopGroup();
-                    bootstrap.channel(NioServerSocketChannel.class);
+                    logger.debug("采用nio模型，接受请求线程数：{}；处理请求线程数：{}", bossThreads, workerThreads);
+                    mainGroup = externalBossGroup == null ? new NioEventLoopGroup(bossThreads) : externalBossGroup;
+                    workerGroup = externalWorkerGroup == null ? new NioEventLoopGroup(workerThreads) :
+                            externalWorkerGroup;
                 }
 
-                // 带child**的方法例如childHandler（）都是对应的worker线程组，不带child的对应的boss线程组
-                bootstrap.group(mainGroup, workerGroup).childHandler(new ChannelInitializer<SocketChannel>() {
+                // TCP和Unix domain socket共用同一个处理链
+                ChannelInitializer<Channel> initializer = new ChannelInitializer<Channel>() {
                     @Override
-                    public void initChannel(SocketChannel ch) throws Exception {
-                        // 下边的编码解码器顺序不能变，CustomFrameDecoder必须每次都new，其他几个对象不用每次都new但是需要在类上加上@Sharable注解
-                        ch.pipeline().addLast(new CustomFrameDecoder(), datagramDecoder, new ConnectorManager
-                                (protocol), datagramEncoder);
+                    public void initChannel(Channel ch) throws Exception {
+                        initPipeline(ch.pipeline(), datagramDecoder, datagramEncoder, flushBatch);
                     }
-                }).option(ChannelOption.SO_BACKLOG, backlog).childOption(ChannelOption
-                        .TCP_NODELAY, nodelay);
+                };
 
-                bootstrap.bind(port).sync();
-                logger.info("监听端口是：{}", port);
+                if (!tcpEnabled && domainSocketPath == null && udpPort <= 0) {
+                    throw new ServerStartException("TCP、Unix domain socket、UDP至少需要监听一个");
+                }
+                if (tcpEnabled) {
+                    bindTcp(epoll, initializer);
+                }
+                if (domainSocketPath != null) {
+                    bindDomainSocket(initializer);
+                }
+                if (udpPort > 0) {
+                    bindUdp(epoll);
+                }
 
                 logger.debug("添加关闭监听");
                 addCloseListener(callback);
@@ -201,6 +532,217 @@ public interface Server {
             }
         }
 
+        /**
+         * 监听TCP端口
+         *
+         * @param epoll       是否使用epoll
+         * @param initializer 连接处理链初始化器
+         * @throws InterruptedException 等待绑定时被中断
+         */
+        private void bindTcp(boolean epoll, ChannelInitializer<Channel> initializer) throws InterruptedException {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class);
+            configure(bootstrap, epoll, initializer);
+            // 带child**的方法例如childHandler（）都是对应的worker线程组，不带child的对应的boss线程组
+            bootstrap.option(ChannelOption.SO_BACKLOG, backlog).childOption(ChannelOption.TCP_NODELAY, nodelay);
+
+            int count = 1;
+            if (acceptors > 1) {
+                if (epoll) {
+                    // 多个通道使用SO_REUSEPORT绑定同一个端口，由内核在通道间均衡分配新连接；每次bind都会从boss线程组中
+                    // 轮询选择下一个线程注册，所以每个通道都在单独的线程上接受连接
+                    count = acceptors;
+                    bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+                    int threads = 0;
+                    for (EventExecutor ignored : mainGroup) {
+                        threads++;
+                    }
+                    if (threads < count) {
+                        logger.warn("接受连接的线程组只有{}个线程，少于acceptors（{}），部分通道会共用同一个线程接受连接；" +
+                                "外部提供bossGroup时请保证其线程数不小于acceptors", threads, count);
+                    }
+                } else {
+                    logger.warn("SO_REUSEPORT只能在epoll模型下使用，忽略acceptors配置，只使用一个通道接受连接");
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                serverChannels.add(bootstrap.bind(port).sync().channel());
+            }
+            logger.info("监听端口是：{}；接受连接的通道数：{}", port, count);
+        }
+
+        /**
+         * 监听Unix domain socket，只能在epoll下使用；如果socket文件已经存在并且没有进程监听会先删除，否则启动失败
+         *
+         * @param initializer 连接处理链初始化器
+         * @throws InterruptedException 等待绑定时被中断
+         */
+        private void bindDomainSocket(ChannelInitializer<Channel> initializer) throws InterruptedException {
+            if (!(workerGroup instanceof EpollEventLoopGroup)) {
+                throw new ServerStartException("Unix domain socket只能在epoll模型下使用");
+            }
+            File file = new File(domainSocketPath);
+            if (file.exists()) {
+                removeStaleDomainSocket(file);
+            }
+
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.channel(EpollServerDomainSocketChannel.class);
+            configure(bootstrap, true, initializer);
+            bootstrap.option(ChannelOption.SO_BACKLOG, backlog);
+            Channel channel = bootstrap.bind(new DomainSocketAddress(domainSocketPath)).sync().channel();
+            channel.closeFuture().addListener(future -> file.delete());
+            serverChannels.add(channel);
+            logger.info("监听Unix domain socket：{}", domainSocketPath);
+        }
+
+        /**
+         * 监听UDP端口
+         *
+         * @param epoll 是否使用epoll
+         * @throws InterruptedException 等待绑定时被中断
+         */
+        private void bindUdp(boolean epoll) throws InterruptedException {
+            Bootstrap bootstrap = new Bootstrap().group(workerGroup).channel(epoll ? EpollDatagramChannel.class :
+                    NioDatagramChannel.class).handler(new UdpDatagramHandler(protocol, zeroCopy, admission,
+                    maxUdpChannels));
+            // 一个UDP包最大64K，使用固定大小的接收缓冲区保证不会截断
+            bootstrap.option(ChannelOption.ALLOCATOR, allocator).option(ChannelOption.RCVBUF_ALLOCATOR, new
+                    FixedRecvByteBufAllocator(MAX_UDP_PACKET));
+            serverChannels.add(bootstrap.bind(udpPort).sync().channel());
+            logger.info("UDP监听端口是：{}", udpPort);
+        }
+
+        /**
+         * 删除上次运行遗留的Unix domain socket文件：只有该文件是socket并且连接失败（没有进程在监听）时才删除，
+         * 否则启动失败，避免误删普通文件或者抢占其他进程正在监听的socket
+         *
+         * @param file 已经存在的Unix domain socket文件
+         */
+        private void removeStaleDomainSocket(File file) {
+            int mode;
+            try {
+                mode = (int) Files.getAttribute(file.toPath(), "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                throw new ServerStartException("读取文件" + domainSocketPath + "的属性失败", e);
+            }
+            if ((mode & S_IFMT) != S_IFSOCK) {
+                throw new ServerStartException("文件" + domainSocketPath + "已经存在并且不是Unix domain socket");
+            }
+
+            ChannelFuture future = new Bootstrap().group(workerGroup).channel(EpollDomainSocketChannel.class).handler
+                    (new ChannelInboundHandlerAdapter()).connect(new DomainSocketAddress(domainSocketPath))
+                    .awaitUninterruptibly();
+            if (future.isSuccess()) {
+                future.channel().close().awaitUninterruptibly();
+                throw new ServerStartException("Unix domain socket" + domainSocketPath + "正在被其他进程监听");
+            }
+            if (!file.delete()) {
+                throw new ServerStartException("删除遗留的Unix domain socket文件" + domainSocketPath + "失败");
+            }
+            logger.warn("Unix domain socket文件{}已经存在并且没有进程监听（{}），删除该文件", domainSocketPath, future
+                    .cause().getMessage());
+        }
+
+        /**
+         * 配置面向连接的服务端（TCP、Unix domain socket）的公共参数
+         *
+         * @param bootstrap   服务端
+         * @param epoll       是否使用epoll
+         * @param initializer 连接处理链初始化器
+         */
+        private void configure(ServerBootstrap bootstrap, boolean epoll, ChannelInitializer<Channel> initializer) {
+            bootstrap.group(mainGroup, workerGroup).childHandler(initializer);
+            if (epoll) {
+                EpollMode mode = edgeTriggered ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+                bootstrap.option(EpollChannelOption.EPOLL_MODE, mode).childOption(EpollChannelOption.EPOLL_MODE, mode);
+            }
+            bootstrap.option(ChannelOption.ALLOCATOR, allocator).childOption(ChannelOption.ALLOCATOR, allocator);
+            if (recvAllocator != null) {
+                bootstrap.childOption(ChannelOption.RCVBUF_ALLOCATOR, recvAllocator);
+            }
+            if (waterMark != null) {
+                bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+            }
+        }
+
+        /**
+         * 初始化连接的处理链
+         *
+         * @param pipeline        连接的处理链
+         * @param datagramDecoder 共享的数据读取器
+         * @param datagramEncoder 共享的编码器
+         * @param flushBatch      是否开启写出合并
+         */
+        private void initPipeline(ChannelPipeline pipeline, DatagramDecoder datagramDecoder, DatagramEncoder
+                datagramEncoder, boolean flushBatch) {
+            // 下边的编码解码器顺序不能变，CustomFrameDecoder必须每次都new，其他几个对象不用每次都new但是需要在类上加上@Sharable注解
+            pipeline.addLast(new CustomFrameDecoder(maxFrameLength));
+            if (heartbeatHandler != null) {
+                // 心跳处理器必须紧跟在CustomFrameDecoder之后
+                pipeline.addLast(heartbeatHandler);
+            }
+            if (compressDecoder != null) {
+                pipeline.addLast(compressDecoder);
+            }
+            if (streamService != null) {
+                // 分块数据报处理器每个通道都需要new
+                pipeline.addLast(new ChunkedDatagramHandler(streamHandler, streamService, maxPendingChunks));
+            }
+            if (routeFilterHandler != null) {
+                pipeline.addLast(routeFilterHandler);
+            }
+            pipeline.addLast(datagramDecoder, new ConnectorManager(protocol, maxOutboundBytes, unwritablePolicy,
+                    unwritableTimeout, admission), datagramEncoder);
+            if (compressEncoder != null) {
+                // 压缩器必须在编码器之后（靠近tail）
+                pipeline.addLast(compressEncoder);
+            }
+            if (flushBatch) {
+                // 写出合并处理器必须在编码器之前（靠近head），每个通道都需要new
+                pipeline.addFirst(new FlushBatchHandler(flushBatchSize, flushMaxDelay));
+            }
+            if (sslContext != null && pipeline.channel() instanceof SocketChannel) {
+                // TLS处理器必须在最前面（靠近head），只对TCP连接开启；加密后的数据使用通道的内存池分配，合并写出时多条消息
+                // 会在同一次flush中加密
+                SslHandler sslHandler = sslContext.newHandler(pipeline.channel().alloc());
+                if (sslHandshakeTimeout > 0) {
+                    sslHandler.setHandshakeTimeoutMillis(sslHandshakeTimeout);
+                }
+                pipeline.addFirst(sslHandler);
+            }
+        }
+
+        @Override
+        public AllocatorMetric allocatorMetric() {
+            if (allocator instanceof PooledByteBufAllocator) {
+                return new AllocatorMetric((PooledByteBufAllocator) allocator);
+            }
+            return null;
+        }
+
+        /**
+         * 判断是否使用epoll，外部提供了线程组时由线程组的类型决定
+         *
+         * @return 返回true表示使用epoll
+         */
+        private boolean useEpoll() {
+            if (externalWorkerGroup != null) {
+                return externalWorkerGroup instanceof EpollEventLoopGroup;
+            }
+            switch (transport) {
+                case EPOLL:
+                    if (!epollAvailable) {
+                        throw new ServerStartException("当前系统epoll不可用", Epoll.unavailabilityCause());
+                    }
+                    return true;
+                case NIO:
+                    return false;
+                default:
+                    return epollAvailable;
+            }
+        }
+
         /**
          * 添加关闭监听，该监听可以监听kill PID，但是对kill -9 PID无效
          */
@@ -0,0 +1,145 @@
+package com.joe.easysocket.server.common;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 字符集ID工具，版本2的数据报head中使用一个字节的字符集ID代替字符集名字；同时缓存字符集名字到字符集的映射，
+ * 避免每次按名字查找字符集
+ * <p>
+ * 字符集ID一旦分配就不能修改，只能在末尾追加
+ *
+ * @author joe
+ */
+public final class CharsetIds {
+    // 未知的字符集ID
+    public static final int UNKNOWN = -1;
+    // 已分配ID的字符集名字，下标为字符集ID
+    private static final String[] NAMES = {"UTF-8", "GBK", "GB2312", "GB18030", "ISO-8859-1", "US-ASCII",
+            "UTF-16", "UTF-16BE", "UTF-16LE", "Big5"};
+    // 已分配ID的字符集，当前JVM不支持的字符集为null
+    private static final Charset[] CHARSETS = new Charset[NAMES.length];
+    // 已分配ID的字符集名字的ASCII编码，用于版本1数据报head中字符集名字的无分配匹配
+    private static final byte[][] NAME_BYTES = new byte[NAMES.length][];
+    // 字符集名字到字符集的缓存
+    private static final ConcurrentMap<String, Charset> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAME_BYTES[i] = NAMES[i].getBytes(StandardCharsets.US_ASCII);
+            if (Charset.isSupported(NAMES[i])) {
+                CHARSETS[i] = Charset.forName(NAMES[i]);
+            }
+        }
+    }
+
+    private CharsetIds() {
+    }
+
+    /**
+     * 根据字符集ID获取字符集名字
+     *
+     * @param id 字符集ID
+     * @return 字符集名字，ID未分配时返回null
+     */
+    public static String name(int id) {
+        return id < 0 || id >= NAMES.length ? null : NAMES[id];
+    }
+
+    /**
+     * 根据字符集名字获取字符集ID
+     *
+     * @param name 字符集名字（不区分大小写，支持别名）
+     * @return 字符集ID，没有分配ID时返回{@link #UNKNOWN}
+     */
+    public static int id(String name) {
+        Charset charset = forName(name);
+        if (charset == null) {
+            return UNKNOWN;
+        }
+        for (int i = 0; i < CHARSETS.length; i++) {
+            if (charset.equals(CHARSETS[i])) {
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * 根据字符集名字获取字符集，结果会缓存
+     *
+     * @param name 字符集名字
+     * @return 字符集，字符集不存在时返回null
+     */
+    public static Charset forName(String name) {
+        if (name == null) {
+            return null;
+        }
+        Charset charset = CACHE.get(name);
+        if (charset == null && Charset.isSupported(name)) {
+            charset = Charset.forName(name);
+            CACHE.putIfAbsent(name, charset);
+        }
+        return charset;
+    }
+
+    /**
+     * 从版本1数据报head的字符集字段中读取字符集名字，已分配ID的字符集直接返回常量，不会创建字符串
+     *
+     * @param buf   缓冲区
+     * @param index 字符集字段的起始位置
+     * @param max   字符集字段的长度
+     * @return 字符集名字
+     */
+    public static String name(ByteBuf buf, int index, int max) {
+        int len = 0;
+        while (len < max && buf.getByte(index + len) != 0) {
+            len++;
+        }
+        for (int i = 0; i < NAME_BYTES.length; i++) {
+            byte[] name = NAME_BYTES[i];
+            if (name.length == len) {
+                int j = 0;
+                while (j < len && buf.getByte(index + j) == name[j]) {
+                    j++;
+                }
+                if (j == len) {
+                    return NAMES[i];
+                }
+            }
+        }
+        return buf.toString(index, len, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 从版本1数据报head的字符集字段中读取字符集名字，已分配ID的字符集直接返回常量，不会创建字符串
+     *
+     * @param data  数据报数据
+     * @param index 字符集字段的起始位置
+     * @param max   字符集字段的长度
+     * @return 字符集名字
+     */
+    public static String name(byte[] data, int index, int max) {
+        int len = 0;
+        while (len < max && data[index + len] != 0) {
+            len++;
+        }
+        for (int i = 0; i < NAME_BYTES.length; i++) {
+            byte[] name = NAME_BYTES[i];
+            if (name.length == len) {
+                int j = 0;
+                while (j < len && data[index + j] == name[j]) {
+                    j++;
+                }
+                if (j == len) {
+                    return NAMES[i];
+                }
+            }
+        }
+        return new String(data, index, len, StandardCharsets.US_ASCII);
+    }
+}
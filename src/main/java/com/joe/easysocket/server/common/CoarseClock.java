@@ -0,0 +1,56 @@
+package com.joe.easysocket.server.common;
+
+/**
+ * 粗粒度时钟，由后台线程定时刷新当前时间，读取时只读取一个volatile变量；适用于调用非常频繁但是对精度要求不高的场景
+ * （例如记录连接的最后活动时间），精度为10毫秒
+ * <p>
+ * 刷新线程是守护线程，不会阻止JVM退出；在容器中反复部署时可以调用{@link #stop()}停止刷新线程，停止后直接读取系统时间
+ *
+ * @author joe
+ */
+public final class CoarseClock {
+    // 刷新间隔，单位为毫秒
+    private static final long PRECISION = 10;
+    // 当前时间
+    private static volatile long now = System.currentTimeMillis();
+    // 刷新线程是否已经停止
+    private static volatile boolean stopped = false;
+    // 刷新线程
+    private static final Thread REFRESHER;
+
+    static {
+        Thread thread = new Thread(() -> {
+            while (!stopped) {
+                now = System.currentTimeMillis();
+                try {
+                    Thread.sleep(PRECISION);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }, "粗粒度时钟线程");
+        thread.setDaemon(true);
+        thread.start();
+        REFRESHER = thread;
+    }
+
+    private CoarseClock() {
+    }
+
+    /**
+     * 停止刷新线程，停止后{@link #now()}直接返回系统时间，停止后不能再启动
+     */
+    public static void stop() {
+        stopped = true;
+        REFRESHER.interrupt();
+    }
+
+    /**
+     * 获取当前时间
+     *
+     * @return 当前时间戳，单位为毫秒，误差在10毫秒以内
+     */
+    public static long now() {
+        return stopped ? System.currentTimeMillis() : now;
+    }
+}
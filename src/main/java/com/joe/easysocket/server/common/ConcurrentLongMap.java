@@ -0,0 +1,249 @@
+package com.joe.easysocket.server.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * key为long的并发map，key不需要装箱
+ * <p>
+ * 内部分段，写操作对所在的段加锁；读操作不加锁：每段的桶数组是volatile的，链表节点的key和next不可变（删除时复制
+ * 被删节点之前的节点，扩容时复制所有节点），value为volatile，所以读线程总能看到一个完整的链表
+ *
+ * @param <V> value类型
+ * @author joe
+ */
+public class ConcurrentLongMap<V> {
+    // 分段数，必须是2的幂
+    private static final int SEGMENTS = 64;
+    // 分段数对应的位数
+    private static final int SEGMENT_BITS = 6;
+    // 每段的初始桶数，必须是2的幂
+    private static final int INITIAL_CAPACITY = 16;
+    private final Segment<V>[] segments;
+
+    public ConcurrentLongMap() {
+        @SuppressWarnings("unchecked")
+        Segment<V>[] segments = (Segment<V>[]) new Segment<?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+        this.segments = segments;
+    }
+
+    private static int hash(long key) {
+        int hash = (int) (key ^ (key >>> 32));
+        return hash ^ (hash >>> 16);
+    }
+
+    private Segment<V> segment(int hash) {
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    /**
+     * 获取key对应的value，不加锁
+     *
+     * @param key key
+     * @return key对应的value，不存在时返回null
+     */
+    public V get(long key) {
+        int hash = hash(key);
+        Node<V> node = segment(hash).find(key, hash);
+        return node == null ? null : node.value;
+    }
+
+    public V put(long key, V value) {
+        int hash = hash(key);
+        Segment<V> segment = segment(hash);
+        synchronized (segment) {
+            return segment.put(key, hash, value);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        int hash = hash(key);
+        return segment(hash).find(key, hash) != null;
+    }
+
+    public V remove(long key) {
+        int hash = hash(key);
+        Segment<V> segment = segment(hash);
+        synchronized (segment) {
+            return segment.remove(key, hash, null);
+        }
+    }
+
+    /**
+     * 只有key当前对应的value是指定value时才删除
+     *
+     * @param key   key
+     * @param value 指定value
+     * @return 删除成功返回true
+     */
+    public boolean remove(long key, V value) {
+        int hash = hash(key);
+        Segment<V> segment = segment(hash);
+        synchronized (segment) {
+            return segment.remove(key, hash, value) != null;
+        }
+    }
+
+    /**
+     * 获取key对应的value，不存在时使用function创建并放入
+     *
+     * @param key      key
+     * @param function value构建函数
+     * @return key对应的value
+     */
+    public V computeIfAbsent(long key, LongFunction<V> function) {
+        int hash = hash(key);
+        Segment<V> segment = segment(hash);
+        Node<V> node = segment.find(key, hash);
+        if (node != null) {
+            return node.value;
+        }
+        synchronized (segment) {
+            node = segment.find(key, hash);
+            if (node != null) {
+                return node.value;
+            }
+            V value = function.apply(key);
+            segment.put(key, hash, value);
+            return value;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.count;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+                segment.count = 0;
+            }
+        }
+    }
+
+    /**
+     * 获取当前所有value的快照（弱一致，遍历期间的修改不一定可见）
+     *
+     * @return 当前所有value
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            AtomicReferenceArray<Node<V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<V> node = table.get(i); node != null; node = node.next) {
+                    values.add(node.value);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 链表节点，key和next不可变
+     */
+    private static final class Node<V> {
+        final long key;
+        final Node<V> next;
+        volatile V value;
+
+        Node(long key, V value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 分段，所有修改都必须持有该段的锁
+     */
+    private static final class Segment<V> {
+        volatile AtomicReferenceArray<Node<V>> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        // 该段的元素数，只在持有锁时访问
+        int count;
+
+        private static int index(int hash, int length) {
+            return (hash >>> SEGMENT_BITS) & (length - 1);
+        }
+
+        Node<V> find(long key, int hash) {
+            AtomicReferenceArray<Node<V>> table = this.table;
+            for (Node<V> node = table.get(index(hash, table.length())); node != null; node = node.next) {
+                if (node.key == key) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        V put(long key, int hash, V value) {
+            Node<V> node = find(key, hash);
+            if (node != null) {
+                V old = node.value;
+                node.value = value;
+                return old;
+            }
+            if (count + 1 > table.length() * 3 / 4) {
+                resize();
+            }
+            AtomicReferenceArray<Node<V>> table = this.table;
+            int index = index(hash, table.length());
+            table.set(index, new Node<>(key, value, table.get(index)));
+            count++;
+            return null;
+        }
+
+        /**
+         * 删除key对应的节点
+         *
+         * @param key      key
+         * @param hash     key的hash
+         * @param expected 不为null时只有当前value等于该值才删除
+         * @return 被删除的value，没有删除时返回null
+         */
+        V remove(long key, int hash, V expected) {
+            AtomicReferenceArray<Node<V>> table = this.table;
+            int index = index(hash, table.length());
+            Node<V> first = table.get(index);
+            Node<V> node = first;
+            while (node != null && node.key != key) {
+                node = node.next;
+            }
+            if (node == null || (expected != null && node.value != expected)) {
+                return null;
+            }
+            //被删节点之后的节点可以复用，之前的节点需要复制
+            Node<V> head = node.next;
+            for (Node<V> p = first; p != node; p = p.next) {
+                head = new Node<>(p.key, p.value, head);
+            }
+            table.set(index, head);
+            count--;
+            return node.value;
+        }
+
+        private void resize() {
+            AtomicReferenceArray<Node<V>> old = table;
+            AtomicReferenceArray<Node<V>> table = new AtomicReferenceArray<>(old.length() << 1);
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<V> node = old.get(i); node != null; node = node.next) {
+                    int index = index(hash(node.key), table.length());
+                    table.set(index, new Node<>(node.key, node.value, table.get(index)));
+                }
+            }
+            this.table = table;
+        }
+    }
+}
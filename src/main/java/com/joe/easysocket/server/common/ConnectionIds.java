@@ -0,0 +1,60 @@
+package com.joe.easysocket.server.common;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接ID工具，连接ID为64位的long，其中高24位为进程启动时随机生成的前缀（用于区分不同节点），低40位为进程内自增序号；
+ * 连接ID的字符串形式为16进制，只用于展示和跨节点传输
+ *
+ * @author joe
+ */
+public final class ConnectionIds {
+    // 未知的连接ID，生成的连接ID不会等于该值
+    public static final long UNKNOWN = 0;
+    // 进程内的连接ID前缀
+    private static final long PREFIX = (ThreadLocalRandom.current().nextLong(1, 1 << 24)) << 40;
+    // 序号掩码
+    private static final long SEQUENCE_MASK = (1L << 40) - 1;
+    // 连接序号
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private ConnectionIds() {
+    }
+
+    /**
+     * 生成一个新的连接ID
+     *
+     * @return 新的连接ID，不会等于{@link #UNKNOWN}
+     */
+    public static long next() {
+        return PREFIX | (SEQUENCE.incrementAndGet() & SEQUENCE_MASK);
+    }
+
+    /**
+     * 将连接ID转换为字符串形式
+     *
+     * @param id 连接ID
+     * @return 连接ID的字符串形式
+     */
+    public static String toString(long id) {
+        return Long.toHexString(id);
+    }
+
+    /**
+     * 将字符串形式的连接ID转换为连接ID
+     *
+     * @param id 字符串形式的连接ID
+     * @return 连接ID，字符串不是合法的连接ID时返回{@link #UNKNOWN}
+     */
+    public static long parse(String id) {
+        if (id == null || id.isEmpty() || id.length() > 16) {
+            return UNKNOWN;
+        }
+        try {
+            return Long.parseUnsignedLong(id, 16);
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.joe.easysocket.server.common;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.joe.easysocket.server.data.Datagram;
 import com.joe.easysocket.server.exception.DataOutOfMemory;
 import com.joe.easysocket.server.exception.IllegalRequestException;
-import com.joe.utils.collection.ByteArray;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 数据报工具
@@ -18,9 +21,19 @@ public class DatagramUtil {
     private static final Logger logger = LoggerFactory.getLogger(DatagramUtil.class);
     // 数据报数据除去请求头的最大长度
     private static final int MAX_LENGTH = Datagram.MAX_LENGTH - 16;
+    // 当前系统默认字符集，JVM运行期间不会改变，只需要获取一次
+    private static final String DEFAULT_CHARSET = Charset.defaultCharset().name();
+    // 当前系统默认字符集的ID，没有分配ID时为CharsetIds.UNKNOWN
+    private static final int DEFAULT_CHARSET_ID = CharsetIds.id(DEFAULT_CHARSET);
+    // 版本1数据报head模板，字符集已经填好，构建时只需要写入版本号、长度和类型；默认字符集名字超过10个字节时为null
+    private static final byte[] HEAD_TEMPLATE_V1 = headTemplateV1(DEFAULT_CHARSET);
+    // body为空的版本1数据报head中写入的字符集，空数据报的字符集没有意义，固定使用名字足够短的UTF-8
+    private static final byte[] EMPTY_CHARSET_V1 = "UTF-8".getBytes(StandardCharsets.US_ASCII);
+    // 解析数据报body使用，与JsonParser的配置相同，JsonParser只能解析完整的byte数组
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     /**
-     * 根据要发送的数据构建数据报（编码采用当前系统默认编码）
+     * 根据要发送的数据构建数据报（编码采用当前系统默认编码），版本号为2时构建版本2的数据报
      *
      * @param body    要发送的数据
      * @param type    数据报类型
@@ -29,54 +42,288 @@ public class DatagramUtil {
      * @throws DataOutOfMemory 当数据长度过长时会抛出该异常
      */
     public static Datagram build(byte[] body, byte type, byte version) throws DataOutOfMemory {
-        int dataLen = 0;
-        if (body != null && body.length != 0) {
-            // 获取要发送的数据的长度
-            dataLen = body.length;
-            logger.debug("要构建的数据报的body长度为：{}", dataLen);
+        return build(body, type, version, 0);
+    }
+
+    /**
+     * 根据要发送的数据构建数据报（编码采用当前系统默认编码），版本号为2时构建版本2的数据报
+     * <p>
+     * 只需要发送数据报时请直接使用{@link #encode(byte[], byte, byte, int)}或者
+     * {@link #encode(ByteBufAllocator, byte[], byte, byte, int)}，不需要创建数据报对象
+     *
+     * @param body          要发送的数据
+     * @param type          数据报类型
+     * @param version       数据报版本
+     * @param correlationId 关联ID，只有版本2的数据报会写入该ID（响应时传入请求数据报的关联ID）
+     * @return 构建好的数据报对象
+     * @throws DataOutOfMemory 当数据长度过长时会抛出该异常
+     */
+    public static Datagram build(byte[] body, byte type, byte version, int correlationId) throws DataOutOfMemory {
+        byte[] data = encode(body, type, version, correlationId);
+        boolean v2 = version == Datagram.VERSION_2;
+        int dataLen = data.length - (v2 ? Datagram.HEAD_LENGTH_V2 : Datagram.HEAD_LENGTH_V1);
+        //版本2的空数据报在默认字符集没有ID时使用ID为0的字符集
+        String charset = v2 && DEFAULT_CHARSET_ID == CharsetIds.UNKNOWN ? CharsetIds.name(0) : DEFAULT_CHARSET;
+        //data是新建的数组，body直接引用data中的数据，不需要再复制
+        Datagram datagram = Datagram.view(data, data.length - dataLen, dataLen, version, charset, type, v2 ?
+                correlationId : 0, null);
+        logger.debug("转换后的数据报是：{}", datagram);
+        return datagram;
+    }
+
+    /**
+     * 将要发送的数据编码为数据报（编码采用当前系统默认编码），head从模板复制，只分配一次数组
+     *
+     * @param body          要发送的数据
+     * @param type          数据报类型
+     * @param version       数据报版本，为2时编码为版本2的数据报
+     * @param correlationId 关联ID，只有版本2的数据报会写入该ID
+     * @return 编码好的数据报数据，包含head
+     * @throws DataOutOfMemory 当数据长度过长或者当前系统默认字符集无法写入head时会抛出该异常
+     */
+    public static byte[] encode(byte[] body, byte type, byte version, int correlationId) throws DataOutOfMemory {
+        int dataLen = body == null ? 0 : body.length;
+        int head = check(dataLen, version);
+        byte[] data = new byte[head + dataLen];
+        if (version == Datagram.VERSION_2) {
+            data[0] = Datagram.VERSION_2;
+            data[Datagram.CHARSET_INDEX_V2] = (byte) charsetIdV2(dataLen);
+            data[Datagram.CORRELATION_INDEX_V2] = (byte) (correlationId >>> 24);
+            data[Datagram.CORRELATION_INDEX_V2 + 1] = (byte) (correlationId >>> 16);
+            data[Datagram.CORRELATION_INDEX_V2 + 2] = (byte) (correlationId >>> 8);
+            data[Datagram.CORRELATION_INDEX_V2 + 3] = (byte) correlationId;
         } else {
-            logger.debug("要构建一个空的数据报");
+            System.arraycopy(HEAD_TEMPLATE_V1, 0, data, 0, head);
+            data[0] = version;
         }
+        data[1] = (byte) (dataLen >>> 24);
+        data[2] = (byte) (dataLen >>> 16);
+        data[3] = (byte) (dataLen >>> 8);
+        data[4] = (byte) dataLen;
+        data[5] = type;
+        if (dataLen != 0) {
+            System.arraycopy(body, 0, data, head, dataLen);
+        }
+        return data;
+    }
 
-        logger.debug("要发送的数据为：{}", body);
-        if (dataLen > MAX_LENGTH) {
+    /**
+     * 将要发送的数据直接编码到缓冲区中（编码采用当前系统默认编码），head从模板写入，body只复制一次，
+     * 写出时不需要再经过中间数组
+     *
+     * @param alloc         缓冲区分配器，通常为ChannelHandlerContext.alloc()
+     * @param body          要发送的数据
+     * @param type          数据报类型
+     * @param version       数据报版本，为2时编码为版本2的数据报
+     * @param correlationId 关联ID，只有版本2的数据报会写入该ID
+     * @return 编码好的数据报缓冲区（调用方负责释放或者写出）
+     * @throws DataOutOfMemory 当数据长度过长或者当前系统默认字符集无法写入head时会抛出该异常
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, byte[] body, byte type, byte version, int correlationId)
+            throws DataOutOfMemory {
+        int dataLen = body == null ? 0 : body.length;
+        int head = check(dataLen, version);
+        ByteBuf buf = alloc.ioBuffer(head + dataLen);
+        if (version == Datagram.VERSION_2) {
+            buf.writeByte(Datagram.VERSION_2).writeInt(dataLen).writeByte(type).writeByte(charsetIdV2(dataLen))
+                    .writeByte(0).writeInt(correlationId);
+        } else {
+            buf.writeByte(version).writeInt(dataLen).writeByte(type).writeBytes(HEAD_TEMPLATE_V1, 6, head - 6);
+        }
+        if (dataLen != 0) {
+            buf.writeBytes(body);
+        }
+        return buf;
+    }
+
+    /**
+     * 构建body为空的数据报（心跳回复、关闭通知等），版本1的head固定写入UTF-8，版本2的字符集ID固定为0，与当前系统
+     * 默认字符集无关，不会抛出异常，可以在静态初始化中使用
+     *
+     * @param type          数据报类型
+     * @param version       数据报版本，为2时编码为版本2的数据报
+     * @param correlationId 关联ID，只有版本2的数据报会写入该ID
+     * @return 编码好的数据报数据，只有head
+     */
+    public static byte[] empty(byte type, byte version, int correlationId) {
+        boolean v2 = version == Datagram.VERSION_2;
+        byte[] data = new byte[v2 ? Datagram.HEAD_LENGTH_V2 : Datagram.HEAD_LENGTH_V1];
+        data[0] = version;
+        data[5] = type;
+        if (v2) {
+            data[Datagram.CORRELATION_INDEX_V2] = (byte) (correlationId >>> 24);
+            data[Datagram.CORRELATION_INDEX_V2 + 1] = (byte) (correlationId >>> 16);
+            data[Datagram.CORRELATION_INDEX_V2 + 2] = (byte) (correlationId >>> 8);
+            data[Datagram.CORRELATION_INDEX_V2 + 3] = (byte) correlationId;
+        } else {
+            System.arraycopy(EMPTY_CHARSET_V1, 0, data, 6, EMPTY_CHARSET_V1.length);
+        }
+        return data;
+    }
+
+    /**
+     * 检查要编码的数据报
+     *
+     * @param dataLen body长度
+     * @param version 数据报版本
+     * @return 数据报head的长度
+     * @throws DataOutOfMemory 当数据长度过长或者当前系统默认字符集无法写入head时会抛出该异常
+     */
+    private static int check(int dataLen, byte version) throws DataOutOfMemory {
+        int head = version == Datagram.VERSION_2 ? Datagram.HEAD_LENGTH_V2 : Datagram.HEAD_LENGTH_V1;
+        int max = version == Datagram.VERSION_2 ? Datagram.MAX_LENGTH - Datagram.HEAD_LENGTH_V2 : MAX_LENGTH;
+        if (dataLen > max) {
             // 数据报超出最大值
-            logger.error("数据报数据长度超过最大值：{}", MAX_LENGTH);
-            throw new DataOutOfMemory(String.format("数据长度超过最大值%d", MAX_LENGTH));
-        }
-        // 缓存
-        ByteArray buffer = new ByteArray(16 + dataLen);
-        // 一个字节的版本号
-        buffer.append(version);
-        // 四个字节的body长度
-        buffer.append(convert(dataLen));
-        // 一个字节的数据类型
-        buffer.append(type);
-        // 十个字节的字符集，字符集为当前系统默认字符集不可更改，不足十个字节的用0填充
-        String charset = Charset.defaultCharset().name();
-        ByteArray charsetBuffer = new ByteArray(10);
-        charsetBuffer.append(charset.getBytes());
-        if (charsetBuffer.size() > 10) {
+            logger.error("数据报数据长度超过最大值：{}", max);
+            throw new DataOutOfMemory(String.format("数据长度超过最大值%d", max));
+        }
+        if (version != Datagram.VERSION_2 && HEAD_TEMPLATE_V1 == null) {
             throw new DataOutOfMemory("数据报字符集长度最大为10byte，当前系统默认字符集超过该长度");
         }
+        return head;
+    }
 
-        // 字符集不足10位的补0
-        while (charsetBuffer.size() < 10) {
-            charsetBuffer.append((byte) 0);
+    /**
+     * 获取版本2数据报head中的字符集ID
+     *
+     * @param dataLen body长度
+     * @return 当前系统默认字符集的ID，空数据报的字符集没有意义，默认字符集没有ID时使用0
+     * @throws DataOutOfMemory 当前系统默认字符集没有对应的字符集ID并且body不为空时抛出该异常
+     */
+    private static int charsetIdV2(int dataLen) throws DataOutOfMemory {
+        if (DEFAULT_CHARSET_ID != CharsetIds.UNKNOWN) {
+            return DEFAULT_CHARSET_ID;
         }
-        buffer.append(charsetBuffer.getData());
-
         if (dataLen != 0) {
-            // 填充数据
-            buffer.append(body);
+            throw new DataOutOfMemory("当前系统默认字符集" + DEFAULT_CHARSET + "没有对应的字符集ID，无法构建版本2的数据报");
         }
-        Datagram datagram = new Datagram(buffer.getData(), dataLen, body, version, charset, type);
-        logger.debug("转换后的数据报是：{}", datagram);
-        return datagram;
+        return 0;
+    }
+
+    /**
+     * 构建版本1数据报head模板，字符集不足10个字节的用0填充
+     *
+     * @param charset 字符集
+     * @return head模板，字符集名字超过10个字节时返回null
+     */
+    private static byte[] headTemplateV1(String charset) {
+        byte[] name = charset.getBytes();
+        if (name.length > 10) {
+            return null;
+        }
+        byte[] head = new byte[Datagram.HEAD_LENGTH_V1];
+        System.arraycopy(name, 0, head, 6, name.length);
+        return head;
+    }
+
+    /**
+     * 获取数据报head的长度
+     *
+     * @param first 数据报的第一个字节（版本号）
+     * @return 数据报head的长度
+     */
+    public static int headLength(byte first) {
+        return (first & Datagram.VERSION_MASK) == Datagram.VERSION_2 ? Datagram.HEAD_LENGTH_V2 : Datagram
+                .HEAD_LENGTH_V1;
+    }
+
+    /**
+     * 获取数据报中标志位所在字节的位置
+     *
+     * @param first 数据报的第一个字节（版本号）
+     * @return 标志位所在字节的位置（版本1为0，版本2为标志位字节）
+     */
+    public static int flagsIndex(byte first) {
+        return (first & Datagram.VERSION_MASK) == Datagram.VERSION_2 ? Datagram.FLAGS_INDEX_V2 : 0;
     }
 
     /**
-     * 数据报解析，将byte数组解析为数据报
+     * 读取数据报的标志位（版本1取版本号字节的高4位，版本2取标志位字节），不会改变缓冲区的读索引
+     *
+     * @param buf   缓冲区
+     * @param start 数据报在缓冲区中的起始位置
+     * @return 标志位
+     */
+    public static int flags(ByteBuf buf, int start) {
+        byte first = buf.getByte(start);
+        if ((first & Datagram.VERSION_MASK) == Datagram.VERSION_2) {
+            return buf.getUnsignedByte(start + Datagram.FLAGS_INDEX_V2);
+        }
+        return first & ~Datagram.VERSION_MASK & 0xFF;
+    }
+
+    /**
+     * 读取数据报的标志位（版本1取版本号字节的高4位，版本2取标志位字节）
+     *
+     * @param data 数据报数据
+     * @return 标志位
+     */
+    public static int flags(byte[] data) {
+        if ((data[0] & Datagram.VERSION_MASK) == Datagram.VERSION_2) {
+            return data[Datagram.FLAGS_INDEX_V2] & 0xFF;
+        }
+        return data[0] & ~Datagram.VERSION_MASK & 0xFF;
+    }
+
+    /**
+     * 读取数据报的字符集名字，已分配ID的字符集不会创建字符串，不会改变缓冲区的读索引
+     *
+     * @param buf   缓冲区
+     * @param start 数据报在缓冲区中的起始位置
+     * @return 字符集名字，版本2的字符集ID未分配时返回null
+     */
+    public static String charset(ByteBuf buf, int start) {
+        if ((buf.getByte(start) & Datagram.VERSION_MASK) == Datagram.VERSION_2) {
+            return CharsetIds.name(buf.getByte(start + Datagram.CHARSET_INDEX_V2) & Datagram.CHARSET_ID_MASK);
+        }
+        return CharsetIds.name(buf, start + 6, 10);
+    }
+
+    /**
+     * 数据报是否带有路由字段（版本2并且字符集ID字节中设置了路由标志），不会改变缓冲区的读索引
+     *
+     * @param buf   缓冲区
+     * @param start 数据报在缓冲区中的起始位置
+     * @return 带有路由字段时返回true
+     */
+    public static boolean hasRoute(ByteBuf buf, int start) {
+        return (buf.getByte(start) & Datagram.VERSION_MASK) == Datagram.VERSION_2 && (buf.getByte(start +
+                Datagram.CHARSET_INDEX_V2) & Datagram.FLAG_ROUTE) != 0;
+    }
+
+    /**
+     * 数据报是否带有路由字段（版本2并且字符集ID字节中设置了路由标志）
+     *
+     * @param data 数据报数据
+     * @return 带有路由字段时返回true
+     */
+    public static boolean hasRoute(byte[] data) {
+        return (data[0] & Datagram.VERSION_MASK) == Datagram.VERSION_2 && (data[Datagram.CHARSET_INDEX_V2] &
+                Datagram.FLAG_ROUTE) != 0;
+    }
+
+    /**
+     * 读取数据报的路由字段，不会改变缓冲区的读索引
+     *
+     * @param buf   缓冲区
+     * @param start 数据报在缓冲区中的起始位置
+     * @return 路由，数据报没有路由字段时返回null
+     * @throws IllegalRequestException 路由长度超过body长度时抛出该异常
+     */
+    public static String route(ByteBuf buf, int start) throws IllegalRequestException {
+        if (!hasRoute(buf, start)) {
+            return null;
+        }
+        int offset = start + Datagram.HEAD_LENGTH_V2;
+        int routeLen = buf.getUnsignedShort(offset);
+        if (routeLen + 2 > buf.getInt(start + 1)) {
+            throw new IllegalRequestException("数据报路由长度超过body长度");
+        }
+        return buf.toString(offset + 2, routeLen, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 数据报解析，将byte数组解析为数据报（支持版本1和版本2的数据报）
      *
      * @param data 数据报的byte数组
      * @return 从data中解析的数据报对象
@@ -85,56 +332,143 @@ public class DatagramUtil {
     public static Datagram decode(final byte[] data) throws IllegalRequestException {
         try {
             logger.debug("要解析的数据为：{}", data);
-            // 字符集数据
-            ByteArray charsetData = new ByteArray(10);
-            for (int i = 6; i < 16; i++) {
-                if (data[i] != 0) {
-                    charsetData.append(data[i]);
-                } else {
-                    break;
-                }
-            }
-            // 字符集
-            String charset = new String(charsetData.getData());
             // 版本号
-            byte version = data[0];
+            byte version = (byte) (data[0] & Datagram.VERSION_MASK);
+            // head长度
+            int head = headLength(data[0]);
+            // 字符集
+            String charset = version == Datagram.VERSION_2 ? CharsetIds.name(data[Datagram.CHARSET_INDEX_V2] &
+                    Datagram.CHARSET_ID_MASK) : CharsetIds.name(data, 6, 10);
+            if (charset == null) {
+                throw new IllegalArgumentException("未知的字符集ID：" + data[Datagram.CHARSET_INDEX_V2]);
+            }
             // 数据报数据类型
             byte type = data[5];
             // 长度
             int len = convert(data, 1);
+            // 关联ID
+            int correlationId = version == Datagram.VERSION_2 ? convert(data, Datagram.CORRELATION_INDEX_V2) : 0;
             logger.debug("要解析的数据报的字符集为：{}，版本号为：{}，数据报类型为：{}", charset, version, type);
 
-            byte[] buffer = new byte[len + 16];
-            if ((data.length - 16) > len) {
-                logger.warn("数据报head中的长度字段为：{}，数据报body的实际长度为：{}", len, data.length - 16);
+            byte[] buffer = new byte[len + head];
+            if ((data.length - head) > len) {
+                logger.warn("数据报head中的长度字段为：{}，数据报body的实际长度为：{}", len, data.length - head);
                 System.arraycopy(data, 0, buffer, 0, buffer.length);
-            } else if ((data.length - 16) == len) {
+            } else if ((data.length - head) == len) {
                 buffer = data;
             } else {
-                logger.warn("数据报head中的长度字段为：{}，数据报body的实际长度为：{}", len, data.length - 16);
+                logger.warn("数据报head中的长度字段为：{}，数据报body的实际长度为：{}", len, data.length - head);
                 throw new IndexOutOfBoundsException("数据报body实际长度小于数据报head中的长度");
             }
 
+            // 路由字段
+            String route = null;
+            int bodyStart = head;
+            if (hasRoute(buffer)) {
+                int routeLen = ((buffer[head] & 0xFF) << 8) | (buffer[head + 1] & 0xFF);
+                if (routeLen + 2 > len) {
+                    throw new IndexOutOfBoundsException("数据报路由长度超过body长度");
+                }
+                route = new String(buffer, head + 2, routeLen, StandardCharsets.UTF_8);
+                bodyStart = head + 2 + routeLen;
+            }
+            int bodyLen = len - (bodyStart - head);
+
             // 有可能是空报文的数据报
-            if (len == 0) {
+            if (bodyLen == 0) {
                 logger.debug("要解析的数据中head标志body长度为0，直接返回一个空body的datagram对象");
-                Datagram datagram = new Datagram(buffer, len, null, version, charset, type);
-                logger.debug("封装好的数据报body为：{}", datagram);
-                return datagram;
-            } else {
-                // 真实的业务数据
-                byte[] body = new byte[len];
-                System.arraycopy(buffer, 16, body, 0, body.length);
-                Datagram datagram = new Datagram(buffer, len, body, version, charset, type);
-                logger.debug("封装好的数据报body为：{}", datagram);
-                return datagram;
             }
+            // body直接引用数据报数据，不再复制
+            Datagram datagram = Datagram.view(buffer == data ? data.clone() : buffer, bodyStart, bodyLen, version,
+                    charset, type, correlationId, route);
+            logger.debug("封装好的数据报body为：{}", datagram);
+            return datagram;
+        } catch (Exception e) {
+            logger.error("数据报解析错误，错误原因：{}", e);
+            throw new IllegalRequestException(e);
+        }
+    }
+
+    /**
+     * 数据报解析，直接从缓冲区中解析数据报（不会改变缓冲区的读索引，也不会释放缓冲区），头信息直接从缓冲区读取，
+     * 数据只会从缓冲区中复制一次，body为该数据的视图；支持版本1和版本2的数据报
+     *
+     * @param buf 数据报对应的缓冲区
+     * @return 从buf中解析的数据报对象
+     * @throws IllegalRequestException 正常情况不会抛该异常，当请求非法时可能抛出该异常
+     */
+    public static Datagram decode(final ByteBuf buf) throws IllegalRequestException {
+        try {
+            int start = buf.readerIndex();
+            // 版本号
+            byte version = (byte) (buf.getByte(start) & Datagram.VERSION_MASK);
+            // head长度
+            int head = headLength(buf.getByte(start));
+            // 字符集
+            String charset = charset(buf, start);
+            if (charset == null) {
+                throw new IllegalArgumentException("未知的字符集ID：" + buf.getByte(start + Datagram.CHARSET_INDEX_V2));
+            }
+            // 数据报数据类型
+            byte type = buf.getByte(start + 5);
+            // 长度
+            int len = buf.getInt(start + 1);
+            // 关联ID
+            int correlationId = version == Datagram.VERSION_2 ? buf.getInt(start + Datagram.CORRELATION_INDEX_V2) :
+                    0;
+            logger.debug("要解析的数据报的字符集为：{}，版本号为：{}，数据报类型为：{}", charset, version, type);
+
+            if ((buf.readableBytes() - head) != len) {
+                logger.warn("数据报head中的长度字段为：{}，数据报body的实际长度为：{}", len, buf.readableBytes() - head);
+                if ((buf.readableBytes() - head) < len) {
+                    throw new IndexOutOfBoundsException("数据报body实际长度小于数据报head中的长度");
+                }
+            }
+
+            byte[] data = new byte[len + head];
+            buf.getBytes(start, data);
+            // 路由字段
+            String route = null;
+            int bodyStart = head;
+            if (hasRoute(data)) {
+                int routeLen = ((data[head] & 0xFF) << 8) | (data[head + 1] & 0xFF);
+                if (routeLen + 2 > len) {
+                    throw new IndexOutOfBoundsException("数据报路由长度超过body长度");
+                }
+                route = new String(data, head + 2, routeLen, StandardCharsets.UTF_8);
+                bodyStart = head + 2 + routeLen;
+            }
+            int bodyLen = len - (bodyStart - head);
+            // body直接引用数据报数据，不再复制
+            Datagram datagram = Datagram.view(data, bodyStart, bodyLen, version, charset, type, correlationId, route);
+            logger.debug("封装好的数据报body为：{}", datagram);
+            return datagram;
         } catch (Exception e) {
             logger.error("数据报解析错误，错误原因：{}", e);
             throw new IllegalRequestException(e);
         }
     }
 
+    /**
+     * 将数据报body作为JSON解析为对象，直接读取body视图，不会复制body（与JsonParser使用相同的默认配置）
+     *
+     * @param datagram 数据报
+     * @param clazz    对象类型
+     * @param <T>      对象类型
+     * @return 解析出的对象，body为空或者解析失败时返回null
+     */
+    public static <T> T readBody(Datagram datagram, Class<T> clazz) {
+        if (datagram.getSize() == 0) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(datagram.bodyStream(), clazz);
+        } catch (Exception e) {
+            logger.error("数据报body解析为{}失败", clazz, e);
+            return null;
+        }
+    }
+
     /**
      * 将一个int类型转换为四个字节的byte数组
      *
@@ -1,18 +1,37 @@
 package com.joe.easysocket.server.data;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
 /**
  * 数据报，用户不能直接构建，可以通过DatagramUtil构建<br/>
  * socket通讯发送的数据，该数据为最小数据，不能再分<br/>
  * <p>
  * 数据报head为固定长度16个字节<br/>
- * 第一个字节为版本号<br/>
+ * 第一个字节为版本号（低4位为版本号，高4位为标志位）<br/>
  * 第二到第五个字节为数据报长度（请求体的长度，不包含请求头）<br/>
  * 第六个字节为数据报数据类型<br/>
  * 第七到第十六字节为数据报编码<br/>
  * <p>
  * 数据报body为变长，长度等于数据报head里边的数据报长度<br/>
  * <p>
+ * 版本2的数据报head为固定长度12个字节（版本号、长度、类型的位置与版本1相同）<br/>
+ * 第一个字节为版本号（固定为2，不包含标志位）<br/>
+ * 第二到第五个字节为数据报长度（请求体的长度，不包含请求头）<br/>
+ * 第六个字节为数据报数据类型<br/>
+ * 第七个字节的低7位为字符集ID（参考{@link com.joe.easysocket.server.common.CharsetIds}），最高位为路由标志<br/>
+ * 第八个字节为标志位（高4位与版本1版本号字节中的标志位相同，低4位为优先级）<br/>
+ * 第九到第十二个字节为关联ID（客户端生成，服务端响应时原样返回，用于在同一连接上并发请求时匹配请求和响应）<br/>
+ * <p>
+ * 解析和构建出来的数据报都是视图模式：body不单独存放，只记录body在data中的位置，{@link #bodyBuffer()}、
+ * {@link #bodyStream()}直接读取data，不会复制；{@link #getData()}和{@link #getBody()}每次调用都会复制一份，
+ * 只为兼容保留，读取body请优先使用视图
+ * <p>
  *
  * @author joe
  */
@@ -20,6 +39,41 @@ package com.joe.easysocket.server.data;
 public class Datagram {
     // 数据报的最大长度，包含请求头和请求体
     public static final int MAX_LENGTH = Integer.MAX_VALUE;
+    // 版本1
+    public static final byte VERSION_1 = 1;
+    // 版本2
+    public static final byte VERSION_2 = 2;
+    // 版本1数据报head的长度
+    public static final int HEAD_LENGTH_V1 = 16;
+    // 版本2数据报head的长度
+    public static final int HEAD_LENGTH_V2 = 12;
+    // 版本2数据报head中字符集ID的位置
+    public static final int CHARSET_INDEX_V2 = 6;
+    // 版本2数据报head中标志位的位置
+    public static final int FLAGS_INDEX_V2 = 7;
+    // 版本2数据报head中关联ID的位置
+    public static final int CORRELATION_INDEX_V2 = 8;
+    // 版本号字节中版本号所占的位，其余位为标志位（版本1）
+    public static final int VERSION_MASK = 0x0F;
+    // 标志位：后续还有分块（大数据拆分为多个数据报发送时，除最后一个数据报外都需要设置该标志）
+    public static final int FLAG_CONTINUATION = 0x80;
+    // 标志位：body已经压缩
+    public static final int FLAG_COMPRESSED = 0x40;
+    // 版本号字节中压缩算法ID所占的位（仅在设置了FLAG_COMPRESSED时有效）
+    public static final int COMPRESSOR_MASK = 0x30;
+    // 压缩算法ID在版本号字节中的偏移
+    public static final int COMPRESSOR_SHIFT = 4;
+    // 版本2字符集ID字节中字符集ID所占的位，最高位为路由标志
+    public static final int CHARSET_ID_MASK = 0x7F;
+    // 路由标志（仅版本2，位于字符集ID字节的最高位）：body前带有路由字段，路由字段为2个字节的路由长度加上UTF-8编码的
+    // 路由（请求的资源路径），该字段不属于数据报body，服务端可以在解析body之前根据路由做出处理；
+    // 标志位字节的低4位已经定义为优先级，所以路由标志不能放在标志位字节中
+    public static final int FLAG_ROUTE = 0x80;
+    // 版本2标志位字节中优先级所占的位
+    public static final int PRIORITY_MASK = 0x0F;
+    // 服务端关闭通知的数据报类型（0xFF，由框架保留，应用不能使用），body为空，客户端收到后应当停止发送新的请求并重连
+    // 其他服务器
+    public static final byte TYPE_SHUTDOWN = (byte) 0xFF;
     // 存放数据报数据，包含头信息，只读信息，只要创建出来后就无法更改
     private final byte[] data;
     // 该长度不包含头信息的长度，只有body的长度
@@ -28,10 +82,18 @@ public class Datagram {
     private final byte version;
     // 数据报body的编码
     private final String charset;
-    // 数据报body
+    // 数据报body所在的数组，视图模式下与data是同一个数组，没有body时为null
+    @Getter(AccessLevel.NONE)
     private final byte[] body;
-    // 数据报数据类型（0：心跳包；1：内置MVC数据处理器数据类型；2：文件传输；除了0和1外可以自己定义数据类型）
+    // body在body数组中的起始位置
+    @Getter(AccessLevel.NONE)
+    private final int bodyOffset;
+    // 数据报数据类型（0：心跳包；1：内置MVC数据处理器数据类型；2：文件传输；0xFF：服务端关闭通知；除了0、1和0xFF外可以自己定义数据类型）
     private final byte type;
+    // 关联ID（只有版本2的数据报有，版本1的数据报为0）
+    private final int correlationId;
+    // 路由（只有版本2并且设置了FLAG_ROUTE标志的数据报有，否则为null）
+    private final String route;
 
     /**
      * 初始化数据报
@@ -44,35 +106,210 @@ public class Datagram {
      * @param type    数据报数据类型（1：接口请求）
      */
     public Datagram(byte[] data, int size, byte[] body, byte version, String charset, byte type) {
-        if (data == null) {
-            this.data = null;
-        } else {
-            this.data = new byte[data.length];
-            System.arraycopy(data, 0, this.data, 0, data.length);
-        }
+        this(data, size, body, version, charset, type, 0);
+    }
 
-        if (body == null) {
-            this.body = null;
-        } else {
-            this.body = new byte[body.length];
-            System.arraycopy(body, 0, this.body, 0, body.length);
-        }
+    /**
+     * 初始化数据报
+     *
+     * @param data          包含头信息的data
+     * @param size          该长度不包含头信息的长度，只有body的长度
+     * @param body          数据报数据实体类
+     * @param version       数据报版本号
+     * @param charset       字符集
+     * @param type          数据报数据类型
+     * @param correlationId 关联ID
+     */
+    public Datagram(byte[] data, int size, byte[] body, byte version, String charset, byte type, int correlationId) {
+        this(data, size, body, version, charset, type, correlationId, null, true);
+    }
+
+    private Datagram(byte[] data, int size, byte[] body, byte version, String charset, byte type, int
+            correlationId, String route, boolean copy) {
+        this(copy ? copy(data) : data, size, copy ? copy(body) : body, 0, version, charset, type, correlationId, route);
+    }
 
+    private Datagram(byte[] data, int size, byte[] body, int bodyOffset, byte version, String charset, byte type,
+                     int correlationId, String route) {
+        this.data = data;
+        this.body = body;
+        this.bodyOffset = bodyOffset;
         this.size = size;
         this.version = version;
         this.charset = charset;
         this.type = type;
+        this.correlationId = correlationId;
+        this.route = route;
     }
 
+    /**
+     * 直接使用传入的数组构建数据报，不会复制数组（供解析数据报时使用，调用方必须保证传入的数组之后不会再被修改）
+     *
+     * @param data    包含头信息的data
+     * @param size    该长度不包含头信息的长度，只有body的长度
+     * @param body    数据报数据实体类
+     * @param version 数据报版本号
+     * @param charset 字符集
+     * @param type    数据报数据类型
+     * @return 数据报
+     */
+    public static Datagram wrap(byte[] data, int size, byte[] body, byte version, String charset, byte type) {
+        return wrap(data, size, body, version, charset, type, 0, null);
+    }
+
+    /**
+     * 直接使用传入的数组构建数据报，不会复制数组（供解析数据报时使用，调用方必须保证传入的数组之后不会再被修改）
+     *
+     * @param data          包含头信息的data
+     * @param size          该长度不包含头信息的长度，只有body的长度
+     * @param body          数据报数据实体类
+     * @param version       数据报版本号
+     * @param charset       字符集
+     * @param type          数据报数据类型
+     * @param correlationId 关联ID
+     * @param route         路由，没有时为null
+     * @return 数据报
+     */
+    public static Datagram wrap(byte[] data, int size, byte[] body, byte version, String charset, byte type, int
+            correlationId, String route) {
+        return new Datagram(data, size, body, version, charset, type, correlationId, route, false);
+    }
+
+    /**
+     * 构建视图模式的数据报，body直接引用data中的数据，不会复制数组（供解析、构建数据报时使用，调用方必须保证传入的数组
+     * 之后不会再被修改）
+     *
+     * @param data          包含头信息的data
+     * @param bodyOffset    body在data中的起始位置
+     * @param size          body的长度
+     * @param version       数据报版本号
+     * @param charset       字符集
+     * @param type          数据报数据类型
+     * @param correlationId 关联ID
+     * @param route         路由，没有时为null
+     * @return 数据报
+     */
+    public static Datagram view(byte[] data, int bodyOffset, int size, byte version, String charset, byte type, int
+            correlationId, String route) {
+        if (bodyOffset < 0 || size < 0 || bodyOffset + size > data.length) {
+            throw new IndexOutOfBoundsException("body位置超出数据报范围，起始位置：" + bodyOffset + "，长度：" + size);
+        }
+        return new Datagram(data, size, size == 0 ? null : data, bodyOffset, version, charset, type, correlationId,
+                route);
+    }
+
+    /**
+     * 获取body的只读视图，不会复制数据
+     *
+     * @return body的只读视图，没有body时返回空的缓冲区
+     */
+    public ByteBuffer bodyBuffer() {
+        if (body == null) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        return ByteBuffer.wrap(body, bodyOffset, bodyLength()).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取整个数据报（包含head）的只读视图，不会复制数据
+     *
+     * @return 数据报的只读视图
+     */
+    public ByteBuffer dataBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取读取body的输入流，不会复制数据，每次调用都返回一个新的输入流
+     *
+     * @return 读取body的输入流，没有body时返回空的输入流
+     */
+    public InputStream bodyStream() {
+        return body == null ? new ByteArrayInputStream(data, 0, 0) : new ByteArrayInputStream(body, bodyOffset,
+                bodyLength());
+    }
+
+    /**
+     * body数组中属于body的长度，视图模式下为size，兼容模式下body单独存放，为整个body数组
+     *
+     * @return body的长度
+     */
+    private int bodyLength() {
+        return body == data ? size : body.length;
+    }
+
+    /**
+     * 比较数据报的逻辑内容：版本、字符集、类型、关联ID、路由和body的内容（只比较body所在的范围），不比较data数组和
+     * body在数组中的位置，所以视图模式和兼容模式构建的相同数据报是相等的
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Datagram)) {
+            return false;
+        }
+        Datagram other = (Datagram) o;
+        if (size != other.size || version != other.version || type != other.type || correlationId != other
+                .correlationId || !Objects.equals(charset, other.charset) || !Objects.equals(route, other.route)) {
+            return false;
+        }
+        int len = body == null ? 0 : bodyLength();
+        if (len != (other.body == null ? 0 : other.bodyLength())) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (body[bodyOffset + i] != other.body[other.bodyOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(size, version, type, correlationId, charset, route);
+        if (body != null) {
+            for (int i = bodyOffset, end = bodyOffset + bodyLength(); i < end; i++) {
+                result = 31 * result + body[i];
+            }
+        }
+        return result;
+    }
+
+    private static byte[] copy(byte[] src) {
+        if (src == null) {
+            return null;
+        }
+        byte[] dest = new byte[src.length];
+        System.arraycopy(src, 0, dest, 0, src.length);
+        return dest;
+    }
+
+    /**
+     * 获取数据报数据（包含head）的副本，每次调用都会复制，请优先使用{@link #dataBuffer()}
+     *
+     * @return 数据报数据的副本
+     */
     public byte[] getData() {
         byte[] data = new byte[this.data.length];
         System.arraycopy(this.data, 0, data, 0, data.length);
         return data;
     }
 
+    /**
+     * 获取body的副本，每次调用都会复制，请优先使用{@link #bodyBuffer()}或者{@link #bodyStream()}
+     *
+     * @return body的副本，没有body时返回null
+     */
     public byte[] getBody() {
-        byte[] body = new byte[this.body.length];
-        System.arraycopy(this.body, 0, body, 0, body.length);
+        if (this.body == null) {
+            return null;
+        }
+        int len = bodyLength();
+        byte[] body = new byte[len];
+        System.arraycopy(this.body, bodyOffset, body, 0, len);
         return body;
     }
 }
\ No newline at end of file
@@ -1,21 +1,118 @@
 package com.joe.easysocket.server.data;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.joe.easysocket.server.common.ConnectionIds;
+import io.netty.buffer.ByteBuf;
 import lombok.*;
 
+import java.beans.ConstructorProperties;
+
 /**
  * 协议栈数据，协议栈处理数据的最小单位
+ * <p>
+ * 应用层发往底层的响应可以只包含body和head字段（body不为null），协议栈写出时直接编码到连接的缓冲区中，不需要先编码为
+ * 完整的数据报数组
+ * <p>
+ * 零拷贝模式下数据存放在buf中（data为null），此时该对象持有缓冲区的一个引用计数，从队列中取出该数据的数据处理器
+ * 处理完毕后必须调用{@link #release()}释放缓冲区；零拷贝模式的数据不能序列化，只能在单机队列中传递
  *
  * @author joe
  */
 @lombok.Data
-@AllArgsConstructor
 public class ProtocolData {
     //应用层数据报
     private byte[] data;
     //数据对应的通道ID
     private @NonNull
     ChannelInfo channelInfo;
+    //零拷贝模式下的应用层数据报
+    @JsonIgnore
+    private transient ByteBuf buf;
+    //只包含body的数据报的body，不为null时data为null，写出时由底层编码
+    private byte[] body;
+    //只包含body的数据报的类型
+    private byte type;
+    //只包含body的数据报的版本
+    private byte version;
+    //只包含body的数据报的关联ID
+    private int correlationId;
+    //是否是数据处理器对一个请求的应答（响应或者没有响应时的处理完成通知），协议栈据此统计正在处理的请求数，主动推送的
+    //数据不是应答
+    private boolean reply;
+
+    @ConstructorProperties({"data", "channelInfo"})
+    public ProtocolData(byte[] data, @NonNull ChannelInfo channelInfo) {
+        this.data = data;
+        this.channelInfo = channelInfo;
+    }
+
+    /**
+     * 零拷贝模式的构造器，该对象将会持有buf的引用计数
+     *
+     * @param buf         应用层数据报对应的缓冲区
+     * @param channelInfo 通道信息
+     */
+    public ProtocolData(@NonNull ByteBuf buf, @NonNull ChannelInfo channelInfo) {
+        this.buf = buf;
+        this.channelInfo = channelInfo;
+    }
+
+    /**
+     * 构建只包含body的数据报，写出时由底层直接编码到连接的缓冲区中
+     *
+     * @param body          数据报body
+     * @param type          数据报类型
+     * @param version       数据报版本
+     * @param correlationId 关联ID，只有版本2的数据报会写入
+     * @param channelInfo   通道信息
+     * @return 只包含body的数据报
+     */
+    public static ProtocolData body(@NonNull byte[] body, byte type, byte version, int correlationId, @NonNull
+            ChannelInfo channelInfo) {
+        ProtocolData data = new ProtocolData((byte[]) null, channelInfo);
+        data.body = body;
+        data.type = type;
+        data.version = version;
+        data.correlationId = correlationId;
+        return data;
+    }
+
+    /**
+     * 构建处理完成通知：请求处理完毕但是没有响应（或者处理失败）时数据处理器发往协议栈，该数据不会写出到连接
+     *
+     * @param channelInfo 请求的通道信息
+     * @return 处理完成通知
+     */
+    public static ProtocolData ack(@NonNull ChannelInfo channelInfo) {
+        ProtocolData ack = new ProtocolData((byte[]) null, channelInfo);
+        ack.reply = true;
+        return ack;
+    }
+
+    /**
+     * 获取应用层数据报，零拷贝模式下会从缓冲区中复制一份（不改变缓冲区的读索引），请尽量直接使用buf
+     *
+     * @return 应用层数据报
+     */
+    public byte[] getData() {
+        if (data == null && buf != null) {
+            byte[] copy = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), copy);
+            return copy;
+        }
+        return data;
+    }
+
+    /**
+     * 释放该数据持有的缓冲区，非零拷贝模式下该方法没有作用，重复调用不会出错
+     */
+    public void release() {
+        if (buf != null) {
+            ByteBuf buf = this.buf;
+            this.buf = null;
+            buf.release();
+        }
+    }
 
     @JsonIgnore
     public String getChannel() {
@@ -42,18 +139,49 @@ public class ProtocolData {
      *
      * @author joe
      */
-    @AllArgsConstructor
     @ToString
     public static final class ChannelInfo {
         @Getter
         private String host = null;
         @Getter
         private int port = -1;
+        //字符串形式的通道ID，用于展示和跨节点传输
         @Getter
         private String channel;
+        //通道的数字ID，跨节点传输时可能缺失，缺失时根据channel解析
+        private long longId = ConnectionIds.UNKNOWN;
+
+        @ConstructorProperties({"host", "port", "channel", "longId"})
+        public ChannelInfo(String host, int port, String channel, long longId) {
+            this.host = host;
+            this.port = port;
+            this.channel = channel;
+            this.longId = longId;
+        }
+
+        public ChannelInfo(String host, int port, String channel) {
+            this(host, port, channel, ConnectionIds.UNKNOWN);
+        }
 
         public ChannelInfo(@NonNull String channel) {
             this.channel = channel;
         }
+
+        public ChannelInfo(long longId, @NonNull String channel) {
+            this.longId = longId;
+            this.channel = channel;
+        }
+
+        /**
+         * 获取通道的数字ID
+         *
+         * @return 通道的数字ID，无法解析时返回{@link ConnectionIds#UNKNOWN}
+         */
+        public long getLongId() {
+            if (longId == ConnectionIds.UNKNOWN) {
+                longId = ConnectionIds.parse(channel);
+            }
+            return longId;
+        }
     }
 }
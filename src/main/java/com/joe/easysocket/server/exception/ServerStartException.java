@@ -8,7 +8,15 @@ package com.joe.easysocket.server.exception;
 public class ServerStartException extends SystemException {
     private static final long serialVersionUID = 6750113110328704622L;
 
+    public ServerStartException(String message) {
+        super(message);
+    }
+
     public ServerStartException(Throwable cause) {
         super(cause);
     }
+
+    public ServerStartException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
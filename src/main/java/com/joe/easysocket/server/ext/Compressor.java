@@ -0,0 +1,42 @@
+package com.joe.easysocket.server.ext;
+
+import java.io.IOException;
+
+/**
+ * 数据报body压缩算法，实现类必须是线程安全的
+ * <p>
+ * 压缩算法ID写入数据报head中，客户端发来压缩的数据报后，服务端发往该连接的数据报也会使用同一个算法压缩
+ *
+ * @author joe
+ */
+public interface Compressor {
+    /**
+     * 压缩算法ID，取值为0-3（0为内置的deflate算法）
+     *
+     * @return 压缩算法ID
+     */
+    int id();
+
+    /**
+     * 压缩
+     *
+     * @param data   要压缩的数据
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @return 压缩后的数据
+     * @throws IOException 压缩失败
+     */
+    byte[] compress(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 解压
+     *
+     * @param data      要解压的数据
+     * @param offset    数据起始位置
+     * @param length    数据长度
+     * @param maxLength 解压后数据的最大长度，超过该长度时必须抛出异常，防止恶意数据耗尽内存
+     * @return 解压后的数据
+     * @throws IOException 数据不合法或者解压后数据超过最大长度
+     */
+    byte[] decompress(byte[] data, int offset, int length, int maxLength) throws IOException;
+}
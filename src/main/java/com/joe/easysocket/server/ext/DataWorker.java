@@ -57,4 +57,24 @@ public interface DataWorker extends Runnable {
      * @param beanContainer bean容器
      */
     void register(BeanContainer beanContainer);
+
+    /**
+     * 直接处理协议栈收到的一条数据，不经过队列；协议栈开启inlineReceive时在IO线程中调用，实现不能阻塞
+     *
+     * @param data 协议栈收到的数据
+     * @return 是否已经接收该数据，返回false时协议栈将数据加入队列（默认不支持直接处理）
+     */
+    default boolean offer(ProtocolData data) {
+        return false;
+    }
+
+    /**
+     * 是否对每个请求应答一次（响应设置了reply或者{@link ProtocolData#ack(ProtocolData.ChannelInfo)}处理完成通知），
+     * 返回true时协议栈排空时会等待已经接收的请求全部应答，否则排空时不等待（默认不应答）
+     *
+     * @return 对每个请求应答一次时返回true
+     */
+    default boolean acknowledges() {
+        return false;
+    }
 }
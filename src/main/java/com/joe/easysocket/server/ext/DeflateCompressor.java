@@ -0,0 +1,83 @@
+package com.joe.easysocket.server.ext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * deflate压缩算法（zlib格式），每个线程复用一个Deflater/Inflater
+ *
+ * @author joe
+ */
+public class DeflateCompressor implements Compressor {
+    //压缩算法ID
+    public static final int ID = 0;
+    private final ThreadLocal<Deflater> deflater;
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(Inflater::new);
+
+    public DeflateCompressor() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level 压缩级别（0-9，-1为默认级别）
+     */
+    public DeflateCompressor(int level) {
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) throws IOException {
+        Deflater deflater = this.deflater.get();
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, length / 2)];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                size += deflater.deflate(buffer, size, buffer.length - size);
+            }
+            return Arrays.copyOf(buffer, size);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int offset, int length, int maxLength) throws IOException {
+        Inflater inflater = this.inflater.get();
+        try {
+            inflater.setInput(data, offset, length);
+            byte[] buffer = new byte[(int) Math.min(maxLength, Math.max(64L, length * 4L))];
+            int size = 0;
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    if (buffer.length >= maxLength) {
+                        throw new IOException("解压后的数据长度超过最大值" + maxLength);
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxLength, buffer.length * 2L));
+                }
+                int n = inflater.inflate(buffer, size, buffer.length - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("压缩数据不完整");
+                }
+                size += n;
+            }
+            return Arrays.copyOf(buffer, size);
+        } catch (DataFormatException e) {
+            throw new IOException("压缩数据格式错误", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.joe.easysocket.server.ext;
+
+/**
+ * 路由过滤器，在IO线程中根据数据报head中的路由和优先级决定是否接收该请求，此时请求体还没有解析；
+ * 该方法会在IO线程中调用，不能有阻塞操作
+ *
+ * @author joe
+ */
+public interface RouteFilter {
+    /**
+     * 是否接收该请求
+     *
+     * @param channel  请求来源连接的ID
+     * @param route    请求的路由（资源路径）
+     * @param priority 请求的优先级（0-15）
+     * @return 返回true表示接收该请求，返回false时该请求不会进入协议栈，客户端会收到状态为403的错误响应（InterfaceData，
+     * 关联ID与请求相同）
+     */
+    boolean accept(String channel, String route, int priority);
+}
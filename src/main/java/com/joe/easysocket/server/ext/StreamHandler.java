@@ -0,0 +1,25 @@
+package com.joe.easysocket.server.ext;
+
+import java.io.InputStream;
+
+/**
+ * 分块数据报流处理器，用于增量处理大数据（例如文件传输），数据不会整体加载到内存中
+ * <p>
+ * 客户端将大数据拆分为多个数据报发送，除最后一个数据报外都需要在版本号字节中设置
+ * {@link com.joe.easysocket.server.data.Datagram#FLAG_CONTINUATION}标志，服务端收到第一个分块后就会调用该处理器
+ *
+ * @author joe
+ */
+public interface StreamHandler {
+    /**
+     * 处理分块数据报流，该方法在独立的线程中调用，可以阻塞读取；方法返回后数据流会被关闭，未读取的分块将被丢弃
+     *
+     * @param channel 数据来源连接的ID
+     * @param type    数据报数据类型（取第一个分块的类型）
+     * @param charset 数据报body的编码（取第一个分块的编码）
+     * @param stream  数据流，内容为所有分块body按顺序拼接，读取到-1时表示所有分块接收完毕；连接中途断开时读取会抛出
+     *                IOException
+     * @throws Exception 处理异常
+     */
+    void handle(String channel, byte type, String charset, InputStream stream) throws Exception;
+}
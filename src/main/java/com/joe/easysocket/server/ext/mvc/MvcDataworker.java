@@ -5,6 +5,7 @@ import com.joe.easysocket.server.common.Function;
 import com.joe.easysocket.server.data.Datagram;
 import com.joe.easysocket.server.data.ProtocolData;
 import com.joe.easysocket.server.exception.NoRequireParamException;
+import com.joe.easysocket.server.exception.SystemException;
 import com.joe.easysocket.server.ext.CustomDeque;
 import com.joe.easysocket.server.ext.DataWorker;
 import com.joe.easysocket.server.ext.PublishCenter;
@@ -34,16 +35,17 @@ import com.joe.utils.common.StringUtils;
 import com.joe.utils.common.Tools;
 import com.joe.utils.concurrent.ThreadUtil;
 import com.joe.utils.parse.json.JsonParser;
+import io.netty.buffer.ByteBuf;
 import lombok.Builder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.validation.ValidationException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 数据处理器，处理协议栈传过来的数据，并且给出结果（目前异常处理的时候没有处理异常处理器异常的情况）
@@ -75,19 +77,26 @@ public class MvcDataworker implements DataWorker {
     private CustomDeque<ProtocolData> deque;
     //执行任务的线程池
     private ExecutorService service;
-    //关闭标志，该标志位主要为了尽快获取写锁（读锁可以重入，如果读锁一直重入写锁就可能无法获取，也就是该数据处理
-    // 器就有可能无法关闭），详情参考关闭逻辑和运行时数据处理逻辑
+    //关闭标志，工作线程每次读取队列后检查该标志，详情参考关闭逻辑和运行时数据处理逻辑
     private AtomicBoolean shutdown = new AtomicBoolean(true);
-    //关闭锁，关闭时需要加锁，必须是读写锁，关闭的时候加写锁，数据处理器工作时加读锁
-    private ReentrantReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    //工作线程退出信号，工作线程处理完队列中剩余的数据后退出
+    private volatile CountDownLatch stopped;
+    //本次关闭的截止时间，工作线程排空队列时超过该时间不再处理剩余数据
+    private volatile long drainDeadline;
+    //关闭时等待请求处理完毕的最长时间，单位为毫秒
+    private final long drainTimeout;
     //关闭回调，系统关闭时会调用（包括使用kill信号）
     private Function callback;
+    //是否由服务器管理关闭，为true时不注册自己的关闭钩子
+    private final boolean managed;
 
     public MvcDataworker(MvcDataworkerConfig mvcDataworkerConfig) {
         register(mvcDataworkerConfig.beanContainer);
         register(mvcDataworkerConfig.deque);
         register(mvcDataworkerConfig.publishCenter, mvcDataworkerConfig.channel);
         register(mvcDataworkerConfig.sessionManager);
+        this.drainTimeout = mvcDataworkerConfig.drainTimeout <= 0 ? 10000 : mvcDataworkerConfig.drainTimeout;
+        this.managed = mvcDataworkerConfig.managed;
     }
 
     @Builder
@@ -98,6 +107,11 @@ public class MvcDataworker implements DataWorker {
         private String channel;
         private SessionManager sessionManager;
         private BeanContainer beanContainer;
+        //关闭时等待请求处理完毕的最长时间，单位为毫秒，小于等于0时使用默认值10秒
+        private long drainTimeout;
+        //是否由服务器管理关闭（同时配置为ServerConfig的dataWorker），为true时不注册kill信号的关闭钩子，由服务器在排空
+        //协议栈之后关闭该数据处理器，防止数据处理器先于协议栈关闭导致排空期间的请求无人处理
+        private boolean managed;
     }
 
     @Override
@@ -117,48 +131,60 @@ public class MvcDataworker implements DataWorker {
             return name;
         }
         shutdown.set(false);
+        stopped = new CountDownLatch(1);
         init();
         this.callback = callback;
         name = StringUtils.isEmpty(name) ? Tools.createRandomStr(4) : name;
         new Thread(this, "数据处理器工作线程-" + name).start();
-        //添加关闭监听
-        addCloseListener();
+        //添加关闭监听，由服务器管理关闭时服务器的关闭钩子会负责关闭
+        if (!managed) {
+            addCloseListener();
+        }
         return name;
     }
 
     @Override
     public synchronized void shutdown() {
-//      销毁数据处理器，销毁逻辑：首先将标志位变为true，然后尝试加锁，加锁成功后再进行销毁，从队列中读取消息后也需要加锁，
-//      如果加锁失败则中断读取，防止从队列中读取到消息后被强制关闭而造成消息丢失，标志位则是防止销毁线程一直获取不到锁而
-//      添加的。
+//      销毁数据处理器，销毁逻辑：首先将标志位变为true，工作线程看到标志位后处理完队列中剩余的数据（不超过截止时间）然后
+//      退出；等待工作线程退出后再等待线程池中已经提交的请求处理完毕（响应会在处理完毕时发出），最后销毁各个容器，保证销毁
+//      时不会有请求正在使用容器。工作线程运行时不需要加锁。
 
         if (shutdown.get()) {
             logger.debug("服务器已经关闭，请勿重复关闭");
             return;
         }
 
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        drainDeadline = deadline;
         shutdown.set(true);
+        logger.info("销毁MVC数据处理器，最长等待{}毫秒", drainTimeout);
         try {
-//            加锁，此处需要加写锁，加该锁后读锁就不能重入了，防止关闭时锁被重入（主要是为了数据处理加锁时的效率
-//            考虑，数据处理时锁可以重入，关闭时就不能重入了）
-            shutdownLock.writeLock().lock();
-            logger.info("销毁MVC数据处理器");
-
-            beanContainer.destroy();
-            sessionManager.destroy();
-
-            resourceContainer.destroy();
-            filterContainer.destroy();
-            dataWriterContainer.destroy();
-            dataReaderContainer.destroy();
-            exceptionMapperContainer.destroy();
-            paramParserContainer.destroy();
+            if (!stopped.await(drainTimeout, TimeUnit.MILLISECONDS)) {
+                logger.warn("等待MVC数据处理器工作线程退出超时");
+            }
             service.shutdown();
-            logger.info("MVC数据处理器销毁成功");
-        } finally {
-            shutdownLock.writeLock().unlock();
+            if (!service.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit
+                    .MILLISECONDS)) {
+                logger.warn("等待请求处理完毕超时，强制关闭线程池");
+                service.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            logger.warn("等待请求处理完毕时被中断，强制关闭线程池");
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
         }
 
+        beanContainer.destroy();
+        sessionManager.destroy();
+
+        resourceContainer.destroy();
+        filterContainer.destroy();
+        dataWriterContainer.destroy();
+        dataReaderContainer.destroy();
+        exceptionMapperContainer.destroy();
+        paramParserContainer.destroy();
+        logger.info("MVC数据处理器销毁成功");
+
         if (callback != null) {
             callback.exec();
         }
@@ -175,25 +201,62 @@ public class MvcDataworker implements DataWorker {
         this.channel = StringUtils.isEmpty(channel) ? "/protocol/receive" : channel;
     }
 
+    /**
+     * 直接处理协议栈收到的数据：在调用线程（IO线程）中解析数据报后提交到线程池，不经过队列和工作线程
+     *
+     * @param data 协议栈收到的数据
+     * @return 数据处理器未启动或者已经关闭时返回false，由协议栈加入队列
+     */
+    @Override
+    public boolean offer(ProtocolData data) {
+        if (shutdown.get()) {
+            return false;
+        }
+        handle(data);
+        return true;
+    }
+
+    /**
+     * 每个请求都会在处理完毕后应答一次，参考{@link #handle(ProtocolData)}
+     */
+    @Override
+    public boolean acknowledges() {
+        return true;
+    }
+
     /**
      * run方法会自动判断当前服务器状态
      */
     @Override
     public void run() {
         logger.debug("MVC数据处理器开始工作");
-        while (true) {
-            if (shutdown.get()) {
-                logger.debug("服务器已经关闭");
-                return;
-            }
-
-            try {
-                //使用读锁，防止效率降低（读锁可以重入）
-                shutdownLock.readLock().lock();
+        CountDownLatch latch = stopped;
+        try {
+            while (!shutdown.get()) {
                 read();
-            } finally {
-                shutdownLock.readLock().unlock();
             }
+            logger.debug("服务器已经关闭，处理队列中剩余的数据");
+            drain();
+        } finally {
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * 关闭时处理队列中剩余的数据，超过截止时间后剩余数据留在队列中不再处理
+     */
+    private void drain() {
+        int count = 0;
+        ProtocolData protocolData;
+        while (System.currentTimeMillis() < drainDeadline && (protocolData = deque.pollFirst()) != null) {
+            handle(protocolData);
+            count++;
+        }
+        logger.debug("关闭时处理了队列中剩余的{}条数据", count);
+        if (!deque.isEmpty()) {
+            logger.warn("关闭超时，队列中还有{}条数据未处理", deque.size());
         }
     }
 
@@ -253,30 +316,91 @@ public class MvcDataworker implements DataWorker {
             logger.debug("服务器已经关闭");
             return;
         }
+        handle(protocolData);
+    }
 
+    /**
+     * 解析从队列中读取到（或者协议栈直接交给数据处理器）的数据并提交到线程池处理，每个请求都会向协议栈应答一次（响应或者处理完成通知），协议栈关闭时
+     * 据此判断请求是否已经处理完毕
+     *
+     * @param protocolData 从队列中读取到的数据
+     */
+    private void handle(ProtocolData protocolData) {
+        ProtocolData.ChannelInfo info = protocolData.getChannelInfo();
+        boolean submitted = false;
         try {
             logger.debug("从队列中读取到数据：{}", protocolData);
-            byte[] data = protocolData.getData();
+            ByteBuf buf = protocolData.getBuf();
+            byte[] data = buf == null ? protocolData.getData() : null;
             ProtocolData.ChannelInfo channelInfo = protocolData.getChannelInfo();
 
-            if (data != null || channelInfo == null) {
-                Datagram datagram = DatagramUtil.decode(data);
+            if (buf != null || data != null || channelInfo == null) {
+                Datagram datagram;
+                if (buf != null) {
+                    //零拷贝模式，解析完毕后立即释放缓冲区，后续处理不再依赖该缓冲区
+                    try {
+                        datagram = DatagramUtil.decode(buf);
+                    } finally {
+                        protocolData.release();
+                    }
+                } else {
+                    datagram = DatagramUtil.decode(data);
+                }
                 if (worker(datagram.getType())) {
                     logger.debug("该数据可以处理，提交到线程池开始处理");
                     service.submit(() -> {
-                        ProtocolData result = accept(datagram, channelInfo);
-                        logger.debug("MVC数据处理器处理{}的结果为：{}；将该结果发送至底层，对应的通道信息为：{}", datagram, result, channelInfo);
-                        publishCenter.pub(channel, result);
+                        ProtocolData result = null;
+                        try {
+                            result = accept(datagram, channelInfo);
+                            logger.debug("MVC数据处理器处理{}的结果为：{}；将该结果发送至底层，对应的通道信息为：{}", datagram, result, channelInfo);
+                        } finally {
+                            reply(result, channelInfo);
+                        }
                     });
+                    submitted = true;
                 }
             } else {
                 logger.debug("数据异常，异常数据为：{}", protocolData);
             }
         } catch (Throwable e) {
             logger.error("数据处理中发生异常，数据为：{}", protocolData, e);
+        } finally {
+            if (!submitted && info != null) {
+                reply(null, info);
+            }
         }
     }
 
+    /**
+     * 向协议栈应答一个请求，没有响应时发送处理完成通知
+     *
+     * @param result      响应，可以为null
+     * @param channelInfo 请求的通道信息
+     */
+    private void reply(ProtocolData result, ProtocolData.ChannelInfo channelInfo) {
+        if (result == null) {
+            result = ProtocolData.ack(channelInfo);
+        } else {
+            result.setReply(true);
+        }
+        publishCenter.pub(channel, result);
+    }
+
+    /**
+     * 在调用线程中同步处理一个请求并返回响应，不经过队列和线程池，响应也不会发往协议栈，用于测试和基准测试；
+     * 调用前数据处理器必须已经启动
+     *
+     * @param datagram    请求数据报
+     * @param channelInfo 请求来源的通道信息
+     * @return 响应，请求没有请求体时返回null
+     */
+    public ProtocolData process(Datagram datagram, ProtocolData.ChannelInfo channelInfo) {
+        if (shutdown.get()) {
+            throw new SystemException("MVC数据处理器未启动");
+        }
+        return accept(datagram, channelInfo);
+    }
+
     private ProtocolData accept(Datagram datagram, ProtocolData.ChannelInfo channelInfo) {
         logger.debug("接收到数据，开始处理。{}，对应的channelinfo为：{}", datagram, channelInfo);
         RequestContext requestContext = null;
@@ -285,9 +409,11 @@ public class MvcDataworker implements DataWorker {
         InterfaceData message = null;
         try {
             Datagram requestDatagram = datagram;
-            byte[] body = requestDatagram.getBody();
+            //只读取body视图，不复制body
+            boolean empty = requestDatagram.getSize() == 0;
+            String route = requestDatagram.getRoute();
 
-            if (body == null || body.length == 0) {
+            if (empty && route == null) {
                 //请求必须有请求体，否则最基本的invoke信息都没有
                 logger.warn("该请求没有请求体，请求内容：{}", datagram);
                 return null;
@@ -298,10 +424,17 @@ public class MvcDataworker implements DataWorker {
                     ());
             // 构建响应上下文，必须在此处初始化，否则当发生异常的时候异常中获取到的responseContext是空，无法获取到信息
             responseContext = new ResponseContext();
-            // MVC数据处理器只有这一种请求data，直接读取
-            logger.debug("开始解析请求数据");
-            message = parser.readAsObject(body, InterfaceData.class);
-            logger.debug("请求数据解析完毕，请求数据为：{}", message);
+            // 数据报head中带有路由时先查找资源，资源不存在时不需要解析请求体
+            Resource resource = route == null ? null : findResource(route);
+            if (empty) {
+                //只有路由没有请求体的请求
+                message = new InterfaceData(null, route, null);
+            } else {
+                // MVC数据处理器只有这一种请求data，直接读取
+                logger.debug("开始解析请求数据");
+                message = DatagramUtil.readBody(requestDatagram, InterfaceData.class);
+                logger.debug("请求数据解析完毕，请求数据为：{}", message);
+            }
 
             logger.debug("开始构建请求上下文");
             // 构建请求上下文
@@ -310,8 +443,10 @@ public class MvcDataworker implements DataWorker {
             logger.debug("请求上下文构建成功，开始查找请求的资源");
 
 
-            // 搜索指定的resource
-            Resource resource = findResource(message.getInvoke());
+            // 搜索指定的resource（数据报head中没有路由时）
+            if (resource == null) {
+                resource = findResource(message.getInvoke());
+            }
             // 放进请求上下文
             requestContext.setResource(resource);
             logger.debug("请求的资源查找完成，请求资源为：{}", resource);
@@ -349,8 +484,10 @@ public class MvcDataworker implements DataWorker {
             logger.debug("响应处理完毕");
         } catch (ResourceNotFoundException e) {
             logger.error("用户请求的资源不存在", e);
-            resultData = buildResult(requestContext.getSource(), new BaseDTO<>("404"), message.getId(),
-                    message.getInvoke(), findWriterInterceptor(null));
+            //根据数据报head中的路由查找资源失败时还没有解析请求体
+            resultData = buildResult(requestContext.getSource(), new BaseDTO<>("404"), message == null ? null :
+                    message.getId(), message == null ? datagram.getRoute() : message.getInvoke(),
+                    findWriterInterceptor(null));
         } catch (MediaTypeNoSupportException e) {
             logger.error("找不到对应的参数解析器", e);
             resultData = buildResult(requestContext.getSource(), new BaseDTO<>("505"), message.getId(),
@@ -384,8 +521,10 @@ public class MvcDataworker implements DataWorker {
             }
         }
 
-        return new ProtocolData(DatagramUtil.build(parser.toJson(resultData).getBytes(), (byte) 1, (byte) 1)
-                .getData(), new ProtocolData.ChannelInfo(channelInfo.getChannel()));
+        //响应数据报的版本、关联ID与请求数据报相同，客户端据此匹配乱序完成的响应
+        //只发出body，由连接直接编码到写出缓冲区中，不需要先编码为完整的数据报数组
+        return ProtocolData.body(parser.toJson(resultData).getBytes(), (byte) 1, datagram.getVersion(), datagram
+                .getCorrelationId(), new ProtocolData.ChannelInfo(channelInfo.getLongId(), channelInfo.getChannel()));
     }
 
     /**
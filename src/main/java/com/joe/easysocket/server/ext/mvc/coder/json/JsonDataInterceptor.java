@@ -1,5 +1,6 @@
 package com.joe.easysocket.server.ext.mvc.coder.json;
 
+import com.joe.easysocket.server.common.CharsetIds;
 import com.joe.easysocket.server.ext.mvc.coder.ReaderInterceptor;
 import com.joe.easysocket.server.ext.mvc.coder.WriterInterceptor;
 import com.joe.easysocket.server.ext.mvc.container.Provider;
@@ -146,8 +147,8 @@ public class JsonDataInterceptor implements ReaderInterceptor, WriterInterceptor
 			return null;
 		}
 		try {
-			// 尝试使用用户字符集编码
-			dataStr = new String(data, charset);
+			// 尝试使用用户字符集编码（字符集从缓存中查找）
+			dataStr = new String(data, CharsetIds.forName(charset));
 		} catch (Exception e) {
 			// 用户字符集有问题，尝试使用系统默认字符集编码
 			logger.error("请求字符集为{}，字符集出错，尝试使用系统默认字符集解析", charset , e);
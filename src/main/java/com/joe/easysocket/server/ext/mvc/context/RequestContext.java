@@ -6,7 +6,6 @@ import com.joe.easysocket.server.ext.mvc.context.session.Session;
 import com.joe.easysocket.server.ext.mvc.resource.Resource;
 import lombok.Data;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -99,13 +98,13 @@ public class RequestContext {
         }
 
         /**
-         * 获取请求数据的输入流
+         * 获取请求数据的输入流，直接读取数据报body，不会复制
          *
          * @return 请求数据对应的输入流
          */
         public synchronized InputStream getInputStream() {
             if (inputStream == null) {
-                inputStream = new ByteArrayInputStream(requestContext.datagram.getBody());
+                inputStream = requestContext.datagram.bodyStream();
             }
             return inputStream;
         }
@@ -1,10 +1,11 @@
 package com.joe.easysocket.server.ext.mvc.context.session;
 
+import com.joe.easysocket.server.common.ConcurrentLongMap;
+import com.joe.easysocket.server.common.ConnectionIds;
 import com.joe.easysocket.server.data.ProtocolData;
-import com.joe.utils.concurrent.LockService;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Session管理器
@@ -12,33 +13,39 @@ import java.util.Map;
  * @author joe
  */
 public class SessionManagerImpl implements SessionManager {
-    private Map<String, LocalSession> cache;
+    //key为通道的数字ID
+    private ConcurrentLongMap<LocalSession> cache;
+    //没有数字ID的通道（例如其他节点传来的旧格式ID），key为字符串形式的通道ID，不能放入cache，否则所有这样的通道会共用
+    //ID为ConnectionIds.UNKNOWN的session
+    private Map<String, LocalSession> fallback;
 
     @Override
     public void init() {
-        cache = new HashMap<>();
+        cache = new ConcurrentLongMap<>();
+        fallback = new ConcurrentHashMap<>();
     }
 
     @Override
     public void destroy() {
         cache.clear();
+        fallback.clear();
     }
 
     @Override
     public Session get(ProtocolData.ChannelInfo channel) {
-        String id = channel.getChannel();
-        if (cache.get(id) == null) {
-            LockService.lock(id);
-            if (cache.get(id) == null) {
-                cache.put(id, new LocalSession(channel));
-            }
-            LockService.unlock(id);
+        long id = channel.getLongId();
+        if (id == ConnectionIds.UNKNOWN) {
+            return fallback.computeIfAbsent(channel.getChannel(), key -> new LocalSession(channel));
         }
-        return cache.get(id);
+        return cache.computeIfAbsent(id, key -> new LocalSession(channel));
     }
 
     @Override
     public Session remove(ProtocolData.ChannelInfo channel) {
-        return (channel == null || channel.getChannel() == null) ? null : cache.get(channel.getChannel());
+        if (channel == null || channel.getChannel() == null) {
+            return null;
+        }
+        long id = channel.getLongId();
+        return id == ConnectionIds.UNKNOWN ? fallback.remove(channel.getChannel()) : cache.remove(id);
     }
 }
@@ -37,6 +37,10 @@ public class BaseDTO<T> implements Serializable {
 		msg.put("504", "Timeout");
 		// 参数验证失败
 		msg.put("505", "validation fail");
+		// 请求被拒绝
+		msg.put("403", "Forbidden");
+		// 请求过于频繁
+		msg.put("429", "Too Many Requests");
 	}
 	/**
 	 * 请求状态
@@ -6,7 +6,9 @@ package com.joe.easysocket.server.protocol;
  * @author joe
  */
 public enum CloseCause {
-    USER("用户主动关闭"), TIMEOUT("心跳超时"), SYSTEM("系统错误"),APPLICATION("应用层关闭");
+    USER("用户主动关闭"), TIMEOUT("心跳超时"), SYSTEM("系统错误"),APPLICATION("应用层关闭"),
+    BACKPRESSURE("写出缓冲区积压"), SHUTDOWN("服务器关闭"),
+    REJECTED("准入控制拒绝");
     private String data;
 
     CloseCause(String data) {
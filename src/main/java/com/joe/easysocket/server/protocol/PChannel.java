@@ -1,5 +1,8 @@
 package com.joe.easysocket.server.protocol;
 
+import com.joe.easysocket.server.common.ConnectionIds;
+import com.joe.easysocket.server.common.DatagramUtil;
+
 /**
  * IO通道
  *
@@ -14,18 +17,44 @@ public interface PChannel {
      */
     ProtocolFuture write(byte[] data);
 
+    /**
+     * 往该channel写一个数据报，只提供body和head字段，由实现负责编码；默认编码为数组后调用{@link #write(byte[])}，
+     * 实现可以覆盖该方法直接编码到底层的缓冲区中，省去中间数组
+     *
+     * @param body          数据报body
+     * @param type          数据报类型
+     * @param version       数据报版本
+     * @param correlationId 关联ID，只有版本2的数据报会写入
+     * @return 异步结果
+     */
+    default ProtocolFuture write(byte[] body, byte type, byte version, int correlationId) {
+        return write(DatagramUtil.encode(body, type, version, correlationId));
+    }
+
     /**
      * 心跳，当接收到数据时应该触发
      */
     void heartbeat();
 
     /**
-     * 获取Channel的ID
+     * 获取Channel的ID（字符串形式，只用于展示、事件和跨节点传输，实现需要缓存该值）
      *
      * @return 该Channel的ID
      */
     String id();
 
+    /**
+     * 获取Channel的数字ID，协议栈内部使用该ID查找通道；默认从{@link #id()}解析，ID不是
+     * {@link ConnectionIds}生成的16进制形式时解析结果为{@link ConnectionIds#UNKNOWN}，协议栈不会注册这样的通道，
+     * 此时实现类需要覆盖该方法（建议使用{@link ConnectionIds#next()}生成ID）
+     *
+     * @return 该Channel的数字ID，字符串形式与{@link #id()}一致
+     * @see com.joe.easysocket.server.common.ConnectionIds
+     */
+    default long longId() {
+        return ConnectionIds.parse(id());
+    }
+
     /**
      * 获取远程主机的IP地址
      *
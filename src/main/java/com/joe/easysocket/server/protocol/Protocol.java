@@ -1,10 +1,13 @@
 package com.joe.easysocket.server.protocol;
 
+import com.joe.easysocket.server.common.ConnectionIds;
 import com.joe.easysocket.server.common.Resource;
 import com.joe.easysocket.server.data.ProtocolData;
 import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.DataWorker;
 import com.joe.easysocket.server.ext.EventCenter;
 import com.joe.easysocket.server.ext.PublishCenter;
+import io.netty.buffer.ByteBuf;
 
 /**
  * 协议栈定义，需要提供以下功能：
@@ -29,18 +32,74 @@ public interface Protocol extends Resource {
      * 协议栈从底层接收数据，然后交由应用层处理
      *
      * @param data 底层传过来的数据
-     * @param src  数据来源
+     * @param src  数据来源（字符串形式的通道ID）
      */
     void receive(byte[] data, String src);
 
+    /**
+     * 协议栈从底层接收数据，然后交由应用层处理；默认实现将通道ID转换为字符串形式后调用
+     * {@link #receive(byte[], String)}，实现类可以覆盖该方法避免转换
+     *
+     * @param data 底层传过来的数据
+     * @param src  数据来源的通道ID
+     */
+    default void receive(byte[] data, long src) {
+        receive(data, ConnectionIds.toString(src));
+    }
+
+    /**
+     * 协议栈从底层接收数据（零拷贝模式），调用该方法后缓冲区的所有权转交给协议栈，协议栈负责释放或者将其交给数据处理器
+     * 释放；默认实现会将数据复制出来后立即释放缓冲区，然后按照普通模式处理
+     *
+     * @param data 底层传过来的数据，已经retain过
+     * @param src  数据来源的通道ID
+     */
+    default void receive(ByteBuf data, long src) {
+        byte[] copy;
+        try {
+            copy = new byte[data.readableBytes()];
+            data.getBytes(data.readerIndex(), copy);
+        } finally {
+            data.release();
+        }
+        receive(copy, src);
+    }
+
     /**
      * 关闭指定数据通道
      *
-     * @param id    通道的ID
+     * @param id    字符串形式的通道ID
      * @param cause 关闭原因
      */
     void close(String id, CloseCause cause);
 
+    /**
+     * 关闭指定数据通道；默认实现将通道ID转换为字符串形式后调用{@link #close(String, CloseCause)}，实现类可以覆盖该方法
+     * 避免转换
+     *
+     * @param id    通道的ID
+     * @param cause 关闭原因
+     */
+    default void close(long id, CloseCause cause) {
+        close(ConnectionIds.toString(id), cause);
+    }
+
+    /**
+     * 优雅关闭前排空协议栈：不再接收新的数据，等待已经加入队列的请求全部被应用层应答（响应或者
+     * {@link ProtocolData#ack(ProtocolData.ChannelInfo)}），然后向所有连接发送关闭通知（类型为
+     * {@link com.joe.easysocket.server.data.Datagram#TYPE_SHUTDOWN}的数据报）并以{@link CloseCause#SHUTDOWN}关闭连接；
+     * 排空后仍然需要调用destroy销毁协议栈
+     * <p>
+     * 只有注册的数据处理器对每个请求应答一次（{@link com.joe.easysocket.server.ext.DataWorker#acknowledges()}）时才会
+     * 等待应答，否则不等待直接通知并关闭连接
+     *
+     * @param timeout 最长等待时间，单位为毫秒，超时后直接关闭所有连接
+     * @return 在超时之前排空时返回true，默认实现不等待直接返回true
+     */
+    default boolean drain(long timeout) {
+        return true;
+    }
+
     /**
      * 注册事件中心
      *
@@ -63,6 +122,14 @@ public interface Protocol extends Resource {
      */
     void register(PublishCenter publishCenter, String channel);
 
+    /**
+     * 注册数据处理器，在IO线程中直接处理数据时将数据直接交给数据处理器，不经过队列和数据处理器的工作线程
+     *
+     * @param dataWorker 数据处理器
+     */
+    default void register(DataWorker dataWorker) {
+    }
+
     /**
      * 注册链接
      *
@@ -6,7 +6,7 @@ package com.joe.easysocket.server.protocol;
  * @author joe
  */
 public enum ProtocolEvent {
-    // 协议栈从下层接收到消息后发布该事件
+    // 协议栈从下层接收到消息后发布该事件，该事件会传入byte[]类型的数据（零拷贝模式下为ByteBuf，监听者不能持有或者释放）
     RECEIVED("协议栈从下层收到消息"),
     // 消息处理完毕后发布该事件
     RECEIVEDSUCCESS("协议栈从下层收到消息并且应用层成功处理并返回"),
@@ -19,7 +19,9 @@ public enum ProtocolEvent {
     // 通道注销后发布该事件，该事件会传入一个String类型的通道ID和一个CloseCause类型的关闭原因
     UNREGISTER("通道注销"),
     // 通道注销但是有未读完的信息，该事件会传入String类型的通道ID和byte[]类型的数据（该数据不是一个完整的数据报，如果有需要可以自己解析）
-    DISCARD("通道注销但是有未读完的信息");
+    DISCARD("通道注销但是有未读完的信息"),
+    // 通道可写状态变化时发布该事件，该事件会传入String类型的通道ID和boolean类型的当前是否可写（应用层可以据此控制推送速度）
+    WRITABILITY("通道可写状态变化");
 
     private String value;
 
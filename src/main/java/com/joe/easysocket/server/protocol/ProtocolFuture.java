@@ -18,6 +18,18 @@ public interface ProtocolFuture {
             return false;
         }
     };
+    //成功future
+    ProtocolFuture SUCCESSFUTURE = new ProtocolFuture() {
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public boolean isSuccess() {
+            return true;
+        }
+    };
     /**
      * 是否完成（立即返回）
      *
@@ -1,23 +1,33 @@
 package com.joe.easysocket.server.protocol;
 
+import com.joe.easysocket.server.common.CoarseClock;
+import com.joe.easysocket.server.common.ConcurrentLongMap;
+import com.joe.easysocket.server.common.ConnectionIds;
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
 import com.joe.easysocket.server.data.ProtocolData;
 import com.joe.easysocket.server.exception.NoRequireParamException;
 import com.joe.easysocket.server.ext.CustomDeque;
 import com.joe.easysocket.server.ext.CustomMessageListener;
+import com.joe.easysocket.server.ext.DataWorker;
 import com.joe.easysocket.server.ext.EventCenter;
 import com.joe.easysocket.server.ext.PublishCenter;
 import com.joe.utils.common.StringUtils;
 import com.joe.utils.concurrent.ThreadUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
 import lombok.Builder;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 协议栈基本实现
@@ -26,10 +36,12 @@ import java.util.concurrent.ExecutorService;
  */
 public class ProtocolImpl implements Protocol {
     private static final Logger logger = LoggerFactory.getLogger(ProtocolImpl.class);
+    //关闭通知数据报，使用版本1的header，所有版本的客户端都可以解析；body为空，head中的字符集固定，与系统默认字符集无关
+    private static final byte[] SHUTDOWN_HINT = DatagramUtil.empty(Datagram.TYPE_SHUTDOWN, Datagram.VERSION_1, 0);
     //协议栈事件中心
     private List<EventCenter> eventCenters;
-    //当前所有通道，key为链接的ID，value为通道
-    private Map<String, PChannel> pChannels;
+    //当前所有通道，key为链接的数字ID，value为通道
+    private ConcurrentLongMap<PChannel> pChannels;
     //发布中心，用于接受应用层主动发往底层的数据
     private PublishCenter publishCenter;
     //线程池，用于处理底层数据
@@ -44,8 +56,18 @@ public class ProtocolImpl implements Protocol {
     private String channel;
     //心跳周期
     private int heartbeat;
-    //过期连接清理线程
-    private Thread cleanupThread;
+    //是否直接在底层IO线程中处理接收到的数据（不经过线程池中转，直接交给数据处理器或者加入队列）
+    private final boolean inline;
+    //数据处理器，inline时收到的数据直接交给该处理器，不经过队列
+    private volatile DataWorker dataWorker;
+    //心跳超时检查时间轮，每个连接只在其可能过期的时间点检查一次，不需要定时扫描所有连接
+    private HashedWheelTimer timer;
+    //是否正在排空，排空时不再接收新的数据
+    private volatile boolean draining = false;
+    //已经加入队列但是还没有收到应答的请求数，加入队列时加一，收到数据处理器的应答时减一
+    private final AtomicLong inFlight = new AtomicLong();
+    //排空时等待inFlight归零的锁
+    private final Object drainLock = new Object();
 
     @Override
     public void register(CustomDeque<ProtocolData> deque) {
@@ -58,6 +80,11 @@ public class ProtocolImpl implements Protocol {
         this.channel = StringUtils.isEmpty(channel) ? "/protocol/receive" : channel;
     }
 
+    @Override
+    public void register(DataWorker dataWorker) {
+        this.dataWorker = dataWorker;
+    }
+
     /**
      * 默认构造器
      *
@@ -65,19 +92,21 @@ public class ProtocolImpl implements Protocol {
      * @param channel       发布中心对应的通道
      * @param deque         队列
      * @param heartbeaat    最长心跳周期，单位为秒，超过该时间没有收到客户端任何消息后关闭该连接（该时间最小为30秒）
+     * @param inline        是否直接在底层IO线程中处理接收到的数据，为true时注册的数据处理器的offer和队列的addLast不能阻塞
      */
     @Builder
     ProtocolImpl(@NonNull PublishCenter publishCenter, String channel, @NonNull CustomDeque<ProtocolData> deque, int
-            heartbeaat) {
+            heartbeaat, boolean inline) {
         register(publishCenter, channel);
         register(deque);
         this.heartbeat = heartbeaat < 30 ? 30 : heartbeaat;
+        this.inline = inline;
     }
 
 
     @Override
     public synchronized void init() {
-        logger.info("初始化协议栈，心跳周期为：{}秒", heartbeat);
+        logger.info("初始化协议栈，心跳周期为：{}秒，是否在IO线程中直接处理数据：{}", heartbeat, inline);
         if (init) {
             logger.warn("协议栈已经初始化，不能重复初始化");
             return;
@@ -105,38 +134,12 @@ public class ProtocolImpl implements Protocol {
         });
 
         eventCenters = new CopyOnWriteArrayList<>();
-        pChannels = new ConcurrentHashMap<>();
+        pChannels = new ConcurrentLongMap<>();
 
         service = ThreadUtil.createPool(ThreadUtil.PoolType.IO);
 
-        cleanupThread = new Thread(() -> {
-            while (true) {
-                try {
-                    long now = System.currentTimeMillis();
-                    pChannels.forEach((id, channel) -> {
-                        long last = channel.getLastActive();
-                        long circle = (now - last) / 1000;
-                        if ((circle - heartbeat) > 0) {
-                            logger.debug("连接{}心跳超时", id);
-                            //心跳超时，关闭连接
-                            publish(id, ProtocolEvent.UNREGISTER, id, CloseCause.TIMEOUT);
-                            channel.close();
-                            pChannels.remove(id);
-                        }
-                    });
-                } catch (Throwable e) {
-                    logger.error("过期连接清理线程出错", e);
-                }
-                //每隔1/5的心跳周期检测一次，也就是过期连接最长会延长1/5的心跳周期被清理
-                try {
-                    Thread.sleep(heartbeat / 5 * 1000);
-                } catch (InterruptedException e) {
-                    logger.debug("应用关闭，清理线程被中断");
-                    break;
-                }
-            }
-        }, "过期连接清理线程");
-        cleanupThread.start();
+        //时间轮每秒转动一格，心跳超时最多延迟1秒被清理
+        timer = new HashedWheelTimer(r -> new Thread(r, "心跳超时检查线程"), 1, TimeUnit.SECONDS, 64);
 
         init = true;
         logger.info("协议栈初始化完成");
@@ -153,7 +156,7 @@ public class ProtocolImpl implements Protocol {
         eventCenters.clear();
         pChannels.clear();
         service.shutdown();
-        cleanupThread.interrupt();
+        timer.stop();
         destroy = true;
         logger.info("协议栈销毁成功");
     }
@@ -161,52 +164,272 @@ public class ProtocolImpl implements Protocol {
     @Override
     public void register(@NonNull PChannel channel) {
         logger.debug("注册ID为：{}的连接{}", channel.id(), channel);
-        String id = channel.id();
+        long id = channel.longId();
+        if (id == ConnectionIds.UNKNOWN) {
+            //所有无法解析的ID都是同一个值，注册后会互相覆盖，只能拒绝
+            logger.error("通道{}没有合法的数字ID，拒绝注册，PChannel的实现需要覆盖longId方法", channel.id());
+            channel.close();
+            return;
+        }
 
         if (this.pChannels.containsKey(id) && channel != this.pChannels.get(id)) {
             logger.warn("当前连接池中存在id为{}的通道，并且该通道与新通道不是同一个通道，将注销该通道并注册新的通道");
             close(id, CloseCause.SYSTEM);
             this.pChannels.put(id, channel);
+            scheduleExpire(channel, heartbeat * 1000L);
         } else if (this.pChannels.containsKey(id)) {
             logger.info("通道{}重复注册", id);
         } else {
             logger.debug("注册通道id为{}的通道{}", id, channel);
             this.pChannels.put(id, channel);
             publish(channel.id(), ProtocolEvent.REGISTER);
+            scheduleExpire(channel, heartbeat * 1000L);
+        }
+    }
+
+    /**
+     * 在指定时间后检查连接是否心跳超时
+     *
+     * @param channel 要检查的连接
+     * @param delay   延迟时间，单位为毫秒
+     */
+    private void scheduleExpire(PChannel channel, long delay) {
+        try {
+            timer.newTimeout(timeout -> checkExpire(channel), delay, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            logger.debug("协议栈已经销毁，不再检查连接{}的心跳", channel.id());
+        }
+    }
+
+    /**
+     * 检查连接是否心跳超时，超时则关闭，否则在该连接下次可能超时的时间点再次检查
+     *
+     * @param channel 要检查的连接
+     */
+    private void checkExpire(PChannel channel) {
+        long id = channel.longId();
+        if (this.pChannels.get(id) != channel) {
+            //连接已经注销或者被新的连接替换
+            return;
+        }
+
+        long idle = CoarseClock.now() - channel.getLastActive();
+        long timeout = heartbeat * 1000L;
+        if (idle > timeout) {
+            logger.debug("连接{}心跳超时", channel.id());
+            //心跳超时，关闭连接
+            if (this.pChannels.remove(id, channel)) {
+                publish(channel.id(), ProtocolEvent.UNREGISTER, channel.id(), CloseCause.TIMEOUT);
+                channel.close();
+            }
+        } else {
+            scheduleExpire(channel, timeout - idle + 1);
         }
     }
 
     @Override
     public void receive(byte[] data, String src) {
-        logger.debug("接收到底层{}传来的数据，开始处理", src);
-        publish(src, ProtocolEvent.RECEIVED, data);
-        service.submit(() -> {
-            try {
-                PChannel channel = this.pChannels.get(src);
+        receive(data, ConnectionIds.parse(src));
+    }
+
+    @Override
+    public void receive(byte[] data, long src) {
+        PChannel channel = this.pChannels.get(src);
+        if (channel == null) {
+            logger.warn("接收到底层{}传来的数据，但是该通道不存在，丢弃数据", src);
+            return;
+        }
+        String id = channel.id();
+        if (draining) {
+            logger.debug("协议栈正在关闭，丢弃底层{}传来的数据", id);
+            return;
+        }
+        logger.debug("接收到底层{}传来的数据，开始处理", id);
+        publish(id, ProtocolEvent.RECEIVED, data);
+        if (inline) {
+            ingest(data, channel);
+            return;
+        }
+        try {
+            service.submit(() -> ingest(data, channel));
+        } catch (RejectedExecutionException e) {
+            logger.warn("协议栈已经关闭，丢弃底层{}传来的数据", id);
+        }
+    }
+
+    @Override
+    public void receive(ByteBuf data, long src) {
+        PChannel channel = this.pChannels.get(src);
+        if (channel == null) {
+            logger.warn("接收到底层{}传来的数据，但是该通道不存在，丢弃数据", src);
+            data.release();
+            return;
+        }
+        String id = channel.id();
+        if (draining) {
+            logger.debug("协议栈正在关闭，丢弃底层{}传来的数据", id);
+            data.release();
+            return;
+        }
+        logger.debug("接收到底层{}传来的数据（零拷贝），开始处理", id);
+        publish(id, ProtocolEvent.RECEIVED, data);
+        if (inline) {
+            ingest(data, channel);
+            return;
+        }
+        try {
+            service.submit(() -> ingest(data, channel));
+        } catch (RejectedExecutionException e) {
+            logger.warn("协议栈已经关闭，丢弃底层{}传来的数据", id);
+            data.release();
+        }
+    }
+
+    /**
+     * 处理底层传来的数据：刷新心跳，非心跳包加入队列
+     *
+     * @param data    底层传来的数据
+     * @param channel 数据来源通道
+     */
+    private void ingest(byte[] data, PChannel channel) {
+        String id = channel.id();
+        try {
+            ProtocolData protocolData = new ProtocolData(data, new ProtocolData.ChannelInfo(channel
+                    .getRemoteHost(), channel.getPort(), id, channel.longId()));
+            byte type = protocolData.getData()[5];
+            //只要收到消息就心跳一次
+            channel.heartbeat();
+            if (type == 0) {
+                logger.debug("数据报是心跳包，不处理");
+            } else {
+                logger.debug("数据不是心跳包，将数据{}加入队列", protocolData);
+                enqueue(protocolData);
+            }
+        } catch (Exception e) {
+            publish(id, ProtocolEvent.RECEIVEDERROR, e);
+            logger.error("底层传来的数据处理过程中失败，数据为{}", data, e);
+        }
+    }
+
+    /**
+     * 处理底层传来的数据（零拷贝）：刷新心跳，心跳包直接释放，非心跳包加入队列，之后由数据处理器负责释放
+     *
+     * @param data    底层传来的数据
+     * @param channel 数据来源通道
+     */
+    private void ingest(ByteBuf data, PChannel channel) {
+        String id = channel.id();
+        try {
+            byte type = data.getByte(data.readerIndex() + 5);
+            //只要收到消息就心跳一次
+            channel.heartbeat();
+            if (type == 0) {
+                logger.debug("数据报是心跳包，不处理");
+                data.release();
+            } else {
                 ProtocolData protocolData = new ProtocolData(data, new ProtocolData.ChannelInfo(channel
-                        .getRemoteHost(), channel.getPort(), channel.id()));
-                byte type = protocolData.getData()[5];
-                //只要收到消息就心跳一次
-                channel.heartbeat();
-                if (type == 0) {
-                    logger.debug("数据报是心跳包，不处理");
-                } else {
-                    logger.debug("数据不是心跳包，将数据{}加入队列", protocolData);
-                    this.deque.addLast(protocolData);
+                        .getRemoteHost(), channel.getPort(), id, channel.longId()));
+                logger.debug("数据不是心跳包，将数据{}加入队列", protocolData);
+                //加入队列后缓冲区由数据处理器负责释放
+                enqueue(protocolData);
+            }
+        } catch (Exception e) {
+            publish(id, ProtocolEvent.RECEIVEDERROR, e);
+            logger.error("底层传来的数据处理过程中失败，数据为{}", data, e);
+            ReferenceCountUtil.safeRelease(data);
+        }
+    }
+
+    /**
+     * 将请求加入队列，加入成功后该请求计入正在处理的请求数，直到收到数据处理器的应答；inline时优先直接交给数据处理器，
+     * 数据处理器不接收时才加入队列
+     *
+     * @param protocolData 请求
+     */
+    private void enqueue(ProtocolData protocolData) {
+        inFlight.incrementAndGet();
+        try {
+            DataWorker worker = this.dataWorker;
+            if (inline && worker != null && worker.offer(protocolData)) {
+                return;
+            }
+            this.deque.addLast(protocolData);
+        } catch (RuntimeException e) {
+            complete();
+            throw e;
+        }
+    }
+
+    /**
+     * 一个请求处理完毕（收到应答或者加入队列失败），排空时最后一个请求处理完毕后唤醒排空线程
+     */
+    private void complete() {
+        if (inFlight.decrementAndGet() <= 0 && draining) {
+            synchronized (drainLock) {
+                drainLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public boolean drain(long timeout) {
+        if (!init || destroy) {
+            return true;
+        }
+        logger.info("开始排空协议栈，最长等待：{}毫秒", timeout);
+        draining = true;
+        long deadline = System.currentTimeMillis() + timeout;
+        boolean drained = false;
+        //数据处理器不应答请求时无法知道请求什么时候处理完毕，不等待
+        DataWorker worker = this.dataWorker;
+        boolean acknowledged = worker != null && worker.acknowledges();
+        if (!acknowledged) {
+            logger.info("数据处理器不会应答每个请求，不等待请求处理完毕");
+        }
+        try {
+            //先等待已经提交但是还未加入队列的数据
+            service.shutdown();
+            service.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            if (acknowledged) {
+                synchronized (drainLock) {
+                    long remaining;
+                    while (inFlight.get() > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        drainLock.wait(remaining);
+                    }
                 }
-            } catch (Exception e) {
-                publish(src, ProtocolEvent.RECEIVEDERROR, e);
-                logger.error("底层传来的数据处理过程中失败，数据为{}", data, e);
             }
-        });
+            drained = !acknowledged || inFlight.get() <= 0;
+        } catch (InterruptedException e) {
+            logger.warn("排空协议栈时被中断");
+            Thread.currentThread().interrupt();
+        }
+
+        if (drained) {
+            logger.info("协议栈排空完毕，通知并关闭所有连接");
+        } else {
+            logger.warn("协议栈排空超时，还有{}个请求没有应答，队列中剩余{}条数据，直接关闭所有连接", inFlight.get(), deque
+                    .size());
+        }
+        byte[] hint = SHUTDOWN_HINT;
+        for (PChannel channel : pChannels.values()) {
+            //写出的数据会在连接关闭前flush
+            channel.write(hint);
+            close(channel.longId(), CloseCause.SHUTDOWN);
+        }
+        return drained;
     }
 
     @Override
     public void close(String id, CloseCause cause) {
+        close(ConnectionIds.parse(id), cause);
+    }
+
+    @Override
+    public void close(long id, CloseCause cause) {
         logger.debug("关闭连接{}，关闭原因为：{}", id, cause);
 
-        if (StringUtils.isEmpty(id)) {
-            logger.warn("连接ID不能为null");
+        if (id == ConnectionIds.UNKNOWN) {
+            logger.warn("连接ID不合法");
             return;
         }
 
@@ -216,7 +439,7 @@ public class ProtocolImpl implements Protocol {
             return;
         }
         channel.close();
-        publish(id, ProtocolEvent.UNREGISTER, id, cause);
+        publish(channel.id(), ProtocolEvent.UNREGISTER, channel.id(), cause);
     }
 
     /**
@@ -245,13 +468,24 @@ public class ProtocolImpl implements Protocol {
             logger.warn("应用层发来的消息为空，不进行处理");
             return ProtocolFuture.ERRORFUTURE;
         }
-        PChannel channel = this.pChannels.get(protocolData.getChannel());
+        if (protocolData.isReply()) {
+            //无论连接是否还存在，该请求都已经处理完毕
+            complete();
+        }
+        if (protocolData.getBody() == null && protocolData.getData() == null && protocolData.getBuf() == null) {
+            logger.debug("应用层发来的是处理完成通知，不需要写出");
+            return ProtocolFuture.SUCCESSFUTURE;
+        }
+        PChannel channel = this.pChannels.get(protocolData.getChannelInfo().getLongId());
         if (channel != null) {
             //先发布一个事件
             publish(channel.id(), ProtocolEvent.RECEIVEDSUCCESS, protocolData);
             logger.debug("找到了要发往的目的地{}的链接", protocolData.getChannel());
             try {
-                ProtocolFuture channelFuture = channel.write(protocolData.getData());
+                byte[] body = protocolData.getBody();
+                //只包含body的响应由通道直接编码写出
+                ProtocolFuture channelFuture = body == null ? channel.write(protocolData.getData()) : channel.write
+                        (body, protocolData.getType(), protocolData.getVersion(), protocolData.getCorrelationId());
                 publish(channel.id(), ProtocolEvent.SEND, protocolData);
                 return channelFuture;
             } catch (Throwable e) {
@@ -1,12 +1,19 @@
 package com.joe.easysocket.server.protocol;
 
+import com.joe.easysocket.server.ext.Compressor;
 import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.DataWorker;
 import com.joe.easysocket.server.ext.EventCenter;
 import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.RouteFilter;
+import com.joe.easysocket.server.ext.StreamHandler;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.ssl.SslContext;
 import lombok.Builder;
 import lombok.Data;
 import lombok.Singular;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -20,6 +27,54 @@ public class ServerConfig {
     // 监听端口
     @Builder.Default
     private int port = 10051;
+    //UDP监听端口，小于等于0时不监听UDP
+    private int udpPort;
+    //UDP虚拟连接数的上限，达到上限后新地址发来的数据直接丢弃（UDP的来源地址可以伪造，必须限制），小于等于0时使用默认值
+    @Builder.Default
+    private int maxUdpChannels = 4096;
+    //是否监听TCP端口，只使用Unix domain socket时可以关闭
+    @Builder.Default
+    private boolean tcpEnabled = true;
+    //Unix domain socket的路径，为空时不监听，只能在epoll模型下使用
+    private String domainSocketPath;
+    //TLS证书链文件（PEM格式），和sslKeyFile都不为null时开启TLS，只对TCP连接有效
+    private File sslCertFile;
+    //TLS私钥文件（PKCS#8 PEM格式）
+    private File sslKeyFile;
+    //TLS私钥密码，私钥没有加密时为null
+    private String sslKeyPassword;
+    //外部提供的TLS上下文，不为null时忽略证书配置
+    private SslContext sslContext;
+    //TLS会话缓存的大小，用于客户端重连时复用会话，小于等于0时使用JDK默认值
+    @Builder.Default
+    private long sslSessionCacheSize = 0;
+    //TLS会话缓存的超时时间，单位为秒，小于等于0时使用JDK默认值
+    @Builder.Default
+    private long sslSessionTimeout = 0;
+    //TLS握手超时时间，单位为毫秒，小于等于0时使用netty默认值
+    @Builder.Default
+    private long sslHandshakeTimeout = 0;
+    //最大连接数，超过后新连接在注册到协议栈之前直接关闭，小于等于0时不限制
+    private int maxConnections;
+    //单个来源IP的最大连接数，对TCP连接和UDP虚拟连接有效，小于等于0时不限制
+    private int maxConnectionsPerIp;
+    //每秒最多新建的连接数，小于等于0时不限制
+    private int acceptRate;
+    //新建连接的突发量，小于等于0时等于acceptRate
+    private int acceptBurst;
+    //单个连接每秒最多的消息数（不包含心跳），超过时版本2的请求收到429错误响应，版本1的请求导致连接以
+    //CloseCause.REJECTED关闭（UDP的来源地址无法验证，超过的消息直接丢弃），小于等于0时不限制
+    private int messageRate;
+    //单个连接消息的突发量，小于等于0时等于messageRate
+    private int messageBurst;
+    //关闭时排空的最长等待时间，单位为毫秒，关闭时先停止接受新连接，等待已经接收的请求全部被数据处理器应答后向客户端发送关闭
+    //通知并关闭连接（没有未应答的请求时不会等待），小于等于0时不排空直接关闭；只有dataWorker对每个请求应答
+    //（DataWorker#acknowledges，MvcDataworker支持）时才会等待应答
+    @Builder.Default
+    private long shutdownTimeout = 15000;
+    //同一进程中的数据处理器，不为null时服务器关闭时先排空协议栈再关闭该数据处理器，保证排空期间请求仍然会被处理；
+    //MvcDataworker需要同时开启managed，不再注册自己的关闭钩子
+    private DataWorker dataWorker;
     //队列的最大长度
     @Builder.Default
     private int backlog = 512;
@@ -40,4 +95,104 @@ public class ServerConfig {
     //心跳周期，单位为秒，最短30秒
     @Builder.Default
     private int heartbeat = 30;
+    //是否开启零拷贝接收，开启后底层数据以ByteBuf的形式经协议栈、队列传给数据处理器，由数据处理器负责释放（只能在单机队列下使用）
+    @Builder.Default
+    private boolean zeroCopy = false;
+    //是否在IO线程中直接处理接收到的数据，省去一次线程切换：配置了dataWorker时数据直接交给数据处理器（不经过队列和
+    //数据处理器的工作线程），否则心跳检查后直接加入队列，要求队列的写入不会阻塞
+    @Builder.Default
+    private boolean inlineReceive = false;
+    //是否在IO线程中直接处理心跳包，开启后心跳包只刷新连接活动时间，不会进入协议栈（也不会发布RECEIVED事件），
+    //依赖心跳包RECEIVED事件的应用不能开启
+    @Builder.Default
+    private boolean ioHeartbeat = false;
+    //IO线程处理心跳包时是否回复一个心跳包（需要开启ioHeartbeat），版本2的回复原样返回心跳包的关联ID
+    @Builder.Default
+    private boolean heartbeatPong = false;
+    //单个数据报的最大长度（包含head），超过该长度的连接将被关闭，更大的数据需要拆分为分块数据报发送
+    @Builder.Default
+    private int maxFrameLength = 16 * 1024 * 1024;
+    //分块数据报流处理器，为null时不处理分块数据报（每个分块按普通数据报处理）
+    private StreamHandler streamHandler;
+    //单个分块数据流最多缓存的分块数，超过后暂停读取该连接，直到数据流处理器消费
+    @Builder.Default
+    private int maxPendingChunks = 16;
+    //是否开启压缩，开启后可以接收压缩的数据报，并且客户端发送过压缩数据报后发往该客户端的数据报也会压缩
+    @Builder.Default
+    private boolean compression = true;
+    //数据报body长度小于该值时不压缩
+    @Builder.Default
+    private int compressThreshold = 512;
+    //自定义压缩算法，内置deflate算法（ID为0），自定义算法ID与内置算法相同时覆盖内置算法
+    @Singular
+    private List<Compressor> compressors;
+    //路由过滤器，在IO线程中根据数据报head中的路由决定是否接收请求，为null时不过滤
+    private RouteFilter routeFilter;
+    //写出合并的消息条数，累计写出该条数的消息后flush一次，小于等于1时每条消息写出后立即flush（不合并）
+    @Builder.Default
+    private int flushBatchSize = 1;
+    //写出合并时消息的最大延迟，单位为毫秒，小于等于0时在本轮事件循环结束时flush，只有开启写出合并时才有效
+    @Builder.Default
+    private int flushMaxDelay = 0;
+    //传输层实现，默认epoll可用时使用epoll，否则使用nio
+    @Builder.Default
+    private Transport transport = Transport.AUTO;
+    //接受连接的线程数，小于等于0时使用netty默认值（机器核心数的两倍）
+    @Builder.Default
+    private int bossThreads = 0;
+    //监听同一个TCP端口的通道数，大于1时使用SO_REUSEPORT绑定多个通道，由内核均衡分配新连接，只有使用epoll时有效；
+    //bossThreads大于0时会被调整为不小于该值；外部提供的bossGroup线程数少于该值时部分通道会共用同一个线程，启动时会打印警告
+    @Builder.Default
+    private int acceptors = 1;
+    //处理IO的线程数，小于等于0时使用netty默认值（机器核心数的两倍）
+    @Builder.Default
+    private int workerThreads = 0;
+    //epoll是否使用边缘触发，false时使用水平触发，只有使用epoll时有效
+    @Builder.Default
+    private boolean edgeTriggered = true;
+    //外部提供的接受连接的线程组，为null时使用workerGroup，workerGroup也为null时服务器自己创建；外部提供的线程组关闭服务器时不会关闭
+    private EventLoopGroup bossGroup;
+    //外部提供的处理IO的线程组，为null时服务器自己创建；提供该线程组时传输层实现由线程组的类型决定
+    private EventLoopGroup workerGroup;
+    //内存池direct arena的数量，小于0时使用netty默认值；以下内存池配置全部为默认值时使用netty默认的分配器
+    @Builder.Default
+    private int directArenas = -1;
+    //内存池heap arena的数量，小于0时使用netty默认值
+    @Builder.Default
+    private int heapArenas = -1;
+    //内存池的页大小，单位为byte，小于等于0时使用netty默认值（8192）
+    @Builder.Default
+    private int pageSize = 0;
+    //内存池chunk的最大阶数，chunk大小为pageSize << maxOrder，小于0时使用netty默认值（11，也就是16M）
+    @Builder.Default
+    private int maxOrder = -1;
+    //线程缓存中tiny、small、normal缓冲区的缓存数量，小于0时使用netty默认值
+    @Builder.Default
+    private int tinyCacheSize = -1;
+    @Builder.Default
+    private int smallCacheSize = -1;
+    @Builder.Default
+    private int normalCacheSize = -1;
+    //自适应接收缓冲区的最小值、初始值、最大值，单位为byte，小于等于0时使用netty默认值（64、1024、65536）
+    @Builder.Default
+    private int recvBufferMin = 0;
+    @Builder.Default
+    private int recvBufferInitial = 0;
+    @Builder.Default
+    private int recvBufferMax = 0;
+    //写出缓冲区的高水位线，单位为byte，超过后通道变为不可写，小于等于0时使用netty默认值（64K）
+    @Builder.Default
+    private int writeBufferHighWaterMark = 0;
+    //写出缓冲区的低水位线，单位为byte，低于后通道恢复可写，小于等于0时使用netty默认值（32K）
+    @Builder.Default
+    private int writeBufferLowWaterMark = 0;
+    //单个连接未写出数据的上限，单位为byte，超过后DROP策略丢弃消息，其他策略关闭连接，小于等于0时不限制
+    @Builder.Default
+    private long maxOutboundBytes = 0;
+    //通道不可写时的处理策略
+    @Builder.Default
+    private UnwritablePolicy unwritablePolicy = UnwritablePolicy.PARK;
+    //CLOSE策略下通道持续不可写多长时间后关闭连接，单位为毫秒
+    @Builder.Default
+    private long unwritableTimeout = 30000;
 }
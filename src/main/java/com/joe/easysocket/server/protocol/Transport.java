@@ -0,0 +1,19 @@
+package com.joe.easysocket.server.protocol;
+
+/**
+ * 服务器使用的传输层实现
+ *
+ * @author joe
+ */
+public enum Transport {
+    AUTO("epoll可用时使用epoll，否则使用nio"), EPOLL("epoll，只有linux下可用"), NIO("jdk nio");
+    private String data;
+
+    Transport(String data) {
+        this.data = data;
+    }
+
+    public String toString() {
+        return this.data;
+    }
+}
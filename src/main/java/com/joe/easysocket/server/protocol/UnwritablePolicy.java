@@ -0,0 +1,20 @@
+package com.joe.easysocket.server.protocol;
+
+/**
+ * 通道不可写（写出缓冲区超过高水位线）时的处理策略
+ *
+ * @author joe
+ */
+public enum UnwritablePolicy {
+    DROP("丢弃要写出的消息"), CLOSE("通道持续不可写超过指定时间后关闭连接"), PARK("暂停读取该连接的请求，通道恢复可写后继续" +
+            "读取");
+    private String data;
+
+    UnwritablePolicy(String data) {
+        this.data = data;
+    }
+
+    public String toString() {
+        return this.data;
+    }
+}
@@ -0,0 +1,175 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接准入控制，所有连接共享同一个实例，包含以下限制（值小于等于0时不限制）：
+ * 1、全局最大连接数；
+ * 2、单个来源IP的最大连接数（对TCP连接和UDP虚拟连接有效）；
+ * 3、新建连接的速率，所有acceptor共享一个GCRA令牌桶（获取令牌只需要一次CAS），总速率精确等于配置值；
+ * 4、单个连接每秒的消息数，每个连接一个令牌桶。
+ * <p>
+ * 该类线程安全
+ *
+ * @author joe
+ */
+public class AdmissionControl {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+    //全局最大连接数
+    private final int maxConnections;
+    //单个IP的最大连接数
+    private final int maxConnectionsPerIp;
+    //单个连接每秒的消息数
+    private final int messageRate;
+    //单个连接的消息突发量
+    private final int messageBurst;
+    //新建连接速率的令牌桶，为null时不限制
+    private final TokenBucket acceptBucket;
+    //当前连接数
+    private final AtomicInteger connections = new AtomicInteger();
+    //每个IP当前的连接数，compute只会锁住对应的桶，不同IP之间基本不会竞争
+    private final ConcurrentMap<String, Integer> ipConnections = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConnections      全局最大连接数
+     * @param maxConnectionsPerIp 单个IP的最大连接数
+     * @param acceptRate          每秒最多新建的连接数
+     * @param acceptBurst         新建连接的突发量，小于等于0时等于acceptRate
+     * @param messageRate         单个连接每秒最多的消息数（不包含心跳）
+     * @param messageBurst        单个连接消息的突发量，小于等于0时等于messageRate
+     */
+    public AdmissionControl(int maxConnections, int maxConnectionsPerIp, int acceptRate, int acceptBurst, int
+            messageRate, int messageBurst) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.messageRate = messageRate;
+        this.messageBurst = messageBurst <= 0 ? messageRate : messageBurst;
+
+        //不按线程分片：新连接只会出现在少数几个线程上，分片后每个线程只能用到总速率的一部分
+        this.acceptBucket = acceptRate > 0 ? new TokenBucket(acceptRate, acceptBurst <= 0 ? acceptRate :
+                acceptBurst) : null;
+    }
+
+    /**
+     * 判断是否允许该连接接入，允许接入的连接关闭时必须调用{@link #release(Channel)}
+     *
+     * @param channel 新建立的连接
+     * @return 允许接入时返回true
+     */
+    boolean admit(Channel channel) {
+        return admit(channel.remoteAddress());
+    }
+
+    /**
+     * 判断是否允许该地址建立连接（UDP虚拟连接使用），允许接入的连接关闭时必须调用{@link #release(SocketAddress)}
+     *
+     * @param remote 连接的来源地址
+     * @return 允许接入时返回true
+     */
+    boolean admit(SocketAddress remote) {
+        if (acceptBucket != null && !acceptBucket.tryAcquire()) {
+            logger.warn("新建连接速率超过限制，拒绝连接{}", remote);
+            return false;
+        }
+
+        if (maxConnections > 0) {
+            int current;
+            do {
+                current = connections.get();
+                if (current >= maxConnections) {
+                    logger.warn("连接数达到上限{}，拒绝连接{}", maxConnections, remote);
+                    return false;
+                }
+            } while (!connections.compareAndSet(current, current + 1));
+        }
+
+        String ip = ip(remote);
+        if (ip != null && !acquireIp(ip)) {
+            logger.warn("IP{}的连接数达到上限{}，拒绝连接{}", ip, maxConnectionsPerIp, remote);
+            if (maxConnections > 0) {
+                connections.decrementAndGet();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 释放已经接入的连接占用的名额
+     *
+     * @param channel 已经接入的连接
+     */
+    void release(Channel channel) {
+        release(channel.remoteAddress());
+    }
+
+    /**
+     * 释放已经接入的连接占用的名额
+     *
+     * @param remote 已经接入的连接的来源地址
+     */
+    void release(SocketAddress remote) {
+        if (maxConnections > 0) {
+            connections.decrementAndGet();
+        }
+        String ip = ip(remote);
+        if (ip != null) {
+            ipConnections.computeIfPresent(ip, (key, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * 为新连接创建消息速率令牌桶
+     *
+     * @return 令牌桶，不限制消息速率时返回null
+     */
+    TokenBucket newMessageBucket() {
+        return messageRate > 0 ? new TokenBucket(messageRate, messageBurst) : null;
+    }
+
+    /**
+     * 当前连接数，不限制全局最大连接数时不统计，返回0
+     *
+     * @return 当前连接数
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    private boolean acquireIp(String ip) {
+        boolean[] acquired = {false};
+        ipConnections.compute(ip, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxConnectionsPerIp) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * 获取需要限制连接数的来源IP
+     *
+     * @param address 连接的来源地址
+     * @return 来源IP，不限制单个IP的连接数或者不是IP连接时返回null
+     */
+    private String ip(SocketAddress address) {
+        if (maxConnectionsPerIp <= 0) {
+            return null;
+        }
+        if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+            return ((InetSocketAddress) address).getAddress().getHostAddress();
+        }
+        return null;
+    }
+}
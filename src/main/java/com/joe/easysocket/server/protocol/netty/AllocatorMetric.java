@@ -0,0 +1,86 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * 内存池分配器的统计信息快照，创建时从分配器中统计，之后不会变化
+ *
+ * @author joe
+ */
+@Data
+public class AllocatorMetric {
+    // direct arena的数量
+    private final int directArenas;
+    // heap arena的数量
+    private final int heapArenas;
+    // 线程缓存的数量
+    private final int threadLocalCaches;
+    // 线程缓存的大小
+    private final int tinyCacheSize;
+    private final int smallCacheSize;
+    private final int normalCacheSize;
+    // 已经使用的direct内存，单位为byte
+    private final long usedDirectMemory;
+    // 已经使用的heap内存，单位为byte
+    private final long usedHeapMemory;
+    // direct内存累计分配次数
+    private final long directAllocations;
+    // heap内存累计分配次数
+    private final long heapAllocations;
+    // direct内存当前未释放的分配次数
+    private final long activeDirectAllocations;
+    // heap内存当前未释放的分配次数
+    private final long activeHeapAllocations;
+    // 超过chunk大小（不经过内存池）的分配次数
+    private final long hugeAllocations;
+    // 共享同一个direct arena的最大线程数，该值越大arena竞争越激烈
+    private final int maxThreadsPerDirectArena;
+    // 共享同一个heap arena的最大线程数，该值越大arena竞争越激烈
+    private final int maxThreadsPerHeapArena;
+
+    public AllocatorMetric(@NonNull PooledByteBufAllocator allocator) {
+        List<PoolArenaMetric> direct = allocator.directArenas();
+        List<PoolArenaMetric> heap = allocator.heapArenas();
+        this.directArenas = allocator.numDirectArenas();
+        this.heapArenas = allocator.numHeapArenas();
+        this.threadLocalCaches = allocator.numThreadLocalCaches();
+        this.tinyCacheSize = allocator.tinyCacheSize();
+        this.smallCacheSize = allocator.smallCacheSize();
+        this.normalCacheSize = allocator.normalCacheSize();
+
+        long usedDirect = 0, directAlloc = 0, activeDirect = 0, huge = 0;
+        int maxDirectThreads = 0;
+        for (PoolArenaMetric arena : direct) {
+            usedDirect += arena.numActiveBytes();
+            directAlloc += arena.numAllocations();
+            activeDirect += arena.numActiveAllocations();
+            huge += arena.numHugeAllocations();
+            maxDirectThreads = Math.max(maxDirectThreads, arena.numThreadCaches());
+        }
+
+        long usedHeap = 0, heapAlloc = 0, activeHeap = 0;
+        int maxHeapThreads = 0;
+        for (PoolArenaMetric arena : heap) {
+            usedHeap += arena.numActiveBytes();
+            heapAlloc += arena.numAllocations();
+            activeHeap += arena.numActiveAllocations();
+            huge += arena.numHugeAllocations();
+            maxHeapThreads = Math.max(maxHeapThreads, arena.numThreadCaches());
+        }
+
+        this.usedDirectMemory = usedDirect;
+        this.usedHeapMemory = usedHeap;
+        this.directAllocations = directAlloc;
+        this.heapAllocations = heapAlloc;
+        this.activeDirectAllocations = activeDirect;
+        this.activeHeapAllocations = activeHeap;
+        this.hugeAllocations = huge;
+        this.maxThreadsPerDirectArena = maxDirectThreads;
+        this.maxThreadsPerHeapArena = maxHeapThreads;
+    }
+}
@@ -4,7 +4,7 @@ import io.netty.buffer.ByteBuf;
 import lombok.Data;
 
 /**
- * 缓冲区引用
+ * 缓冲区引用，零拷贝模式下data为null，数据只存在于byteBuf中（此时byteBuf已经retain，需要接收方负责释放）
  *
  * @author joe
  */
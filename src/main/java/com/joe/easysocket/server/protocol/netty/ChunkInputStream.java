@@ -0,0 +1,201 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分块数据报流，IO线程写入分块，处理线程读取；缓存的分块数达到上限时暂停读取底层连接（关闭autoRead），
+ * 处理线程消费到上限的一半以下时恢复读取，从而保证单个流占用的内存有上限
+ * <p>
+ * autoRead的开关都在连接的IO线程中执行，避免暂停和恢复之间的竞争
+ *
+ * @author joe
+ */
+class ChunkInputStream extends InputStream {
+    //数据结束标志
+    private static final ByteBuf END = Unpooled.buffer(0);
+    //连接中途断开标志
+    private static final ByteBuf ABORT = Unpooled.buffer(0);
+    private final BlockingQueue<ByteBuf> chunks = new LinkedBlockingQueue<>();
+    //底层连接
+    private final Channel channel;
+    //最多缓存的分块数
+    private final int maxPending;
+    //当前缓存的分块数
+    private final AtomicInteger pending = new AtomicInteger();
+    //是否已经暂停读取底层连接
+    private volatile boolean suspended;
+    //是否已经提交了恢复读取的任务
+    private final AtomicBoolean resumeQueued = new AtomicBoolean();
+    //当前正在读取的分块
+    private ByteBuf current;
+    //是否已经读取完毕
+    private boolean eof;
+    //是否已经关闭
+    private volatile boolean closed;
+
+    /**
+     * @param channel    底层连接
+     * @param maxPending 最多缓存的分块数
+     */
+    ChunkInputStream(Channel channel, int maxPending) {
+        this.channel = channel;
+        this.maxPending = Math.max(maxPending, 1);
+    }
+
+    /**
+     * 写入一个分块（只能在IO线程中调用），分块的所有权转交给该流
+     *
+     * @param chunk 分块
+     */
+    void offer(ByteBuf chunk) {
+        if (closed) {
+            chunk.release();
+            return;
+        }
+        chunks.offer(chunk);
+        if (pending.incrementAndGet() >= maxPending && !suspended) {
+            suspended = true;
+            ReadSuspension.suspend(channel, ReadSuspension.CHUNK);
+        }
+        if (closed) {
+            //处理线程可能在写入的同时关闭了流
+            drain();
+        }
+    }
+
+    /**
+     * 所有分块写入完毕（只能在IO线程中调用）
+     */
+    void end() {
+        chunks.offer(END);
+    }
+
+    /**
+     * 连接中途断开（只能在IO线程中调用）
+     */
+    void abort() {
+        chunks.offer(ABORT);
+    }
+
+    @Override
+    public int read() throws IOException {
+        ByteBuf buf = next();
+        return buf == null ? -1 : buf.readUnsignedByte();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuf buf = next();
+        if (buf == null) {
+            return -1;
+        }
+        int size = Math.min(len, buf.readableBytes());
+        buf.readBytes(b, off, size);
+        return size;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.readableBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+        drain();
+        resume();
+    }
+
+    /**
+     * 获取当前可读的分块，当前分块读取完毕时阻塞等待下一个分块
+     *
+     * @return 当前可读的分块，数据读取完毕时返回null
+     * @throws IOException 流已经关闭、连接中途断开或者读取被中断时抛出该异常
+     */
+    private ByteBuf next() throws IOException {
+        if (closed) {
+            throw new IOException("数据流已经关闭");
+        }
+        while (current == null || !current.isReadable()) {
+            if (eof) {
+                return null;
+            }
+            if (current != null) {
+                current.release();
+                current = null;
+                consumed();
+            }
+
+            ByteBuf chunk;
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("读取分块数据被中断", e);
+            }
+
+            if (chunk == END) {
+                eof = true;
+            } else if (chunk == ABORT) {
+                eof = true;
+                throw new IOException("连接已经断开，分块数据不完整");
+            } else {
+                current = chunk;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 一个分块消费完毕，缓存的分块数降到上限的一半以下时恢复读取底层连接
+     */
+    private void consumed() {
+        if (pending.decrementAndGet() <= maxPending / 2 && suspended) {
+            resume();
+        }
+    }
+
+    private void resume() {
+        if (suspended && resumeQueued.compareAndSet(false, true)) {
+            channel.eventLoop().execute(() -> {
+                resumeQueued.set(false);
+                if (suspended && (closed || pending.get() <= maxPending / 2)) {
+                    suspended = false;
+                    ReadSuspension.resume(channel, ReadSuspension.CHUNK);
+                }
+            });
+        }
+    }
+
+    /**
+     * 释放所有缓存的分块
+     */
+    private void drain() {
+        ByteBuf chunk;
+        while ((chunk = chunks.poll()) != null) {
+            if (chunk != END && chunk != ABORT) {
+                chunk.release();
+                pending.decrementAndGet();
+            }
+        }
+    }
+}
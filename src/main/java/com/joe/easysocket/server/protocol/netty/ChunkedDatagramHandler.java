@@ -0,0 +1,124 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.StreamHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 分块数据报处理器，收到设置了{@link Datagram#FLAG_CONTINUATION}标志的数据报时开启一个数据流，之后该连接上的
+ * 数据报都作为该流的分块（分块不会进入协议栈），直到收到一个没有设置该标志的数据报（最后一个分块）为止；
+ * 数据流交给{@link StreamHandler}在线程池中处理
+ * <p>
+ * 该处理器必须位于CustomFrameDecoder（如果有心跳处理器则位于心跳处理器）之后，并且每个通道都必须new一个
+ *
+ * @author joe
+ */
+public class ChunkedDatagramHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedDatagramHandler.class);
+    //数据流处理器
+    private final StreamHandler handler;
+    //处理数据流的线程池
+    private final ExecutorService service;
+    //单个数据流最多缓存的分块数
+    private final int maxPendingChunks;
+    //当前正在接收的数据流
+    private ChunkInputStream stream;
+
+    /**
+     * @param handler          数据流处理器
+     * @param service          处理数据流的线程池
+     * @param maxPendingChunks 单个数据流最多缓存的分块数，超过后暂停读取该连接
+     */
+    public ChunkedDatagramHandler(StreamHandler handler, ExecutorService service, int maxPendingChunks) {
+        this.handler = handler;
+        this.service = service;
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf buf = (ByteBuf) msg;
+        int start = buf.readerIndex();
+        boolean more = (DatagramUtil.flags(buf, start) & Datagram.FLAG_CONTINUATION) != 0;
+        if (stream == null && !more) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        NettyChannel channel = ctx.channel().attr(NettyChannel.KEY).get();
+        if (channel != null) {
+            //分块不经过协议栈，需要在此刷新心跳
+            channel.heartbeat();
+        }
+
+        if (stream == null) {
+            stream = open(ctx, buf, channel == null ? null : channel.id());
+        }
+        int len = buf.getInt(start + 1);
+        ByteBuf chunk = buf.retainedSlice(start + DatagramUtil.headLength(buf.getByte(start)), len);
+        buf.release();
+        stream.offer(chunk);
+
+        if (!more) {
+            logger.debug("连接{}的分块数据接收完毕", ctx.channel());
+            stream.end();
+            stream = null;
+        }
+    }
+
+    /**
+     * 根据第一个分块开启数据流并提交给数据流处理器
+     */
+    private ChunkInputStream open(ChannelHandlerContext ctx, ByteBuf first, String id) {
+        int start = first.readerIndex();
+        byte type = first.getByte(start + 5);
+        String charset = DatagramUtil.charset(first, start);
+        logger.debug("连接{}开始接收分块数据，数据报类型为：{}", id, type);
+
+        ChunkInputStream stream = new ChunkInputStream(ctx.channel(), maxPendingChunks);
+        try {
+            service.submit(() -> {
+                try (ChunkInputStream in = stream) {
+                    handler.handle(id, type, charset, in);
+                } catch (Throwable e) {
+                    logger.error("连接{}的分块数据处理失败", id, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("服务器已经关闭，丢弃连接{}的分块数据", id);
+            try {
+                stream.close();
+            } catch (Exception ex) {
+                logger.debug("关闭数据流失败", ex);
+            }
+        }
+        return stream;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        abort();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        abort();
+    }
+
+    private void abort() {
+        if (stream != null) {
+            logger.warn("分块数据接收过程中连接断开");
+            stream.abort();
+            stream = null;
+        }
+    }
+}
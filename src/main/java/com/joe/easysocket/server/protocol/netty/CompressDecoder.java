@@ -0,0 +1,84 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.exception.IllegalRequestException;
+import com.joe.easysocket.server.ext.Compressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.util.Attribute;
+
+import java.util.List;
+
+/**
+ * 解压器，将设置了{@link Datagram#FLAG_COMPRESSED}标志的数据报解压为普通数据报（清除压缩标志并修改长度字段），
+ * 同时记录该连接使用的压缩算法，之后发往该连接的数据报也会使用该算法压缩；未压缩的数据报原样往下传递
+ * <p>
+ * 该处理器必须位于CustomFrameDecoder（如果有心跳处理器则位于心跳处理器）之后、分块数据报处理器之前
+ *
+ * @author joe
+ */
+@Sharable
+public class CompressDecoder extends MessageToMessageDecoder<ByteBuf> {
+    //压缩算法，下标为压缩算法ID
+    private final Compressor[] compressors;
+    //解压后数据报的最大长度（包含head）
+    private final int maxFrameLength;
+
+    /**
+     * @param compressors    压缩算法，下标为压缩算法ID
+     * @param maxFrameLength 解压后数据报的最大长度（包含head）
+     */
+    public CompressDecoder(Compressor[] compressors, int maxFrameLength) {
+        this.compressors = compressors;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        int start = msg.readerIndex();
+        byte first = msg.getByte(start);
+        int flags = DatagramUtil.flags(msg, start);
+        if ((flags & Datagram.FLAG_COMPRESSED) == 0) {
+            out.add(msg.retain());
+            return;
+        }
+
+        int id = (flags & Datagram.COMPRESSOR_MASK) >> Datagram.COMPRESSOR_SHIFT;
+        Compressor compressor = compressors[id];
+        if (compressor == null) {
+            throw new IllegalRequestException("不支持的压缩算法：" + id);
+        }
+
+        int head = DatagramUtil.headLength(first);
+        int len = msg.getInt(start + 1);
+        byte[] body;
+        int offset;
+        if (msg.hasArray()) {
+            body = msg.array();
+            offset = msg.arrayOffset() + start + head;
+        } else {
+            body = ByteBufUtil.getBytes(msg, start + head, len);
+            offset = 0;
+        }
+        byte[] data = compressor.decompress(body, offset, len, maxFrameLength - head);
+
+        //复制head后修改长度字段并清除压缩标志
+        ByteBuf result = ctx.alloc().buffer(head + data.length);
+        result.writeBytes(msg, start, head);
+        result.setInt(1, data.length);
+        int flagsIndex = DatagramUtil.flagsIndex(first);
+        result.setByte(flagsIndex, result.getByte(flagsIndex) & ~(Datagram.FLAG_COMPRESSED | Datagram
+                .COMPRESSOR_MASK));
+        result.writeBytes(data);
+
+        Attribute<Compressor> attr = ctx.channel().attr(CompressEncoder.COMPRESSOR);
+        if (attr.get() == null) {
+            attr.setIfAbsent(compressor);
+        }
+        out.add(result);
+    }
+}
@@ -0,0 +1,101 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.Compressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.AttributeKey;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 压缩器，只有连接的客户端发送过压缩的数据报（表示客户端支持该压缩算法）并且body长度达到阈值时才会压缩，
+ * 压缩后长度没有减小的数据报原样写出
+ * <p>
+ * 该处理器必须位于编码器之后（靠近pipeline的tail）
+ *
+ * @author joe
+ */
+@Sharable
+public class CompressEncoder extends MessageToMessageEncoder<Object> {
+    //netty channel中保存该连接使用的压缩算法的属性key
+    static final AttributeKey<Compressor> COMPRESSOR = AttributeKey.valueOf("easysocket.compressor");
+    //body长度小于该值时不压缩
+    private final int threshold;
+
+    /**
+     * @param threshold body长度小于该值时不压缩
+     */
+    public CompressEncoder(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        return msg instanceof byte[] || msg instanceof OutboundDatagram;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        if (msg instanceof OutboundDatagram) {
+            encode(ctx, (OutboundDatagram) msg, out);
+        } else {
+            encode(ctx, (byte[]) msg, out);
+        }
+    }
+
+    /**
+     * 压缩只包含body的数据报，压缩后的body直接编码到缓冲区中，不压缩时原样传递给编码器
+     *
+     * @param ctx ChannelHandlerContext
+     * @param msg 只包含body的数据报
+     * @param out 输出
+     */
+    private void encode(ChannelHandlerContext ctx, OutboundDatagram msg, List<Object> out) throws Exception {
+        int len = msg.body == null ? 0 : msg.body.length;
+        Compressor compressor = ctx.channel().attr(COMPRESSOR).get();
+        byte[] body;
+        if (compressor == null || len < threshold || (body = compressor.compress(msg.body, 0, len)).length >= len) {
+            out.add(msg);
+            return;
+        }
+
+        ByteBuf buf = DatagramUtil.encode(ctx.alloc(), body, msg.type, msg.version, msg.correlationId);
+        int flagsIndex = DatagramUtil.flagsIndex(msg.version);
+        buf.setByte(flagsIndex, buf.getByte(flagsIndex) | Datagram.FLAG_COMPRESSED | (compressor.id() << Datagram
+                .COMPRESSOR_SHIFT));
+        out.add(buf);
+    }
+
+    private void encode(ChannelHandlerContext ctx, byte[] msg, List<Object> out) throws Exception {
+        int head = DatagramUtil.headLength(msg[0]);
+        int len = msg.length - head;
+        Compressor compressor = ctx.channel().attr(COMPRESSOR).get();
+        if (compressor == null || len < threshold || (DatagramUtil.flags(msg) & Datagram.FLAG_COMPRESSED) != 0) {
+            out.add(msg);
+            return;
+        }
+
+        byte[] body = compressor.compress(msg, head, len);
+        if (body.length >= len) {
+            out.add(msg);
+            return;
+        }
+
+        //只复制head，head和压缩后的body组合后写出，不再复制body
+        byte[] header = Arrays.copyOf(msg, head);
+        int flagsIndex = DatagramUtil.flagsIndex(msg[0]);
+        header[flagsIndex] = (byte) (header[flagsIndex] | Datagram.FLAG_COMPRESSED | (compressor.id() << Datagram
+                .COMPRESSOR_SHIFT));
+        header[1] = (byte) (body.length >>> 24);
+        header[2] = (byte) (body.length >>> 16);
+        header[3] = (byte) (body.length >>> 8);
+        header[4] = (byte) body.length;
+        out.add(Unpooled.wrappedBuffer(header, body));
+    }
+}
@@ -1,14 +1,19 @@
 package com.joe.easysocket.server.protocol.netty;
 
+import com.joe.easysocket.server.data.Datagram;
 import com.joe.easysocket.server.protocol.CloseCause;
 import com.joe.easysocket.server.protocol.Protocol;
 import com.joe.easysocket.server.protocol.ProtocolEvent;
+import com.joe.easysocket.server.protocol.UnwritablePolicy;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 连接注册、注销管理
  *
@@ -16,24 +21,119 @@ import org.slf4j.LoggerFactory;
  */
 public class ConnectorManager extends ChannelInboundHandlerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(ConnectorManager.class);
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
     //当前连接的读取缓冲
     private ByteBuf byteBuf;
     private Protocol protocol;
+    //单个连接未写出数据的上限
+    private final long maxOutboundBytes;
+    //通道不可写时的处理策略
+    private final UnwritablePolicy policy;
+    //CLOSE策略下通道持续不可写多长时间后关闭连接，单位为毫秒
+    private final long unwritableTimeout;
+    //当前连接
+    private NettyChannel channel;
+    //不可写超时检查任务
+    private ScheduledFuture<?> unwritableTask;
+    //准入控制，为null时不限制
+    private final AdmissionControl admission;
+    //当前连接是否通过了准入控制（关闭时需要释放名额）
+    private boolean admitted;
+    //当前连接的消息速率令牌桶，为null时不限制
+    private TokenBucket messageBucket;
 
     public ConnectorManager(Protocol protocol) {
+        this(protocol, 0, UnwritablePolicy.PARK, 0);
+    }
+
+    /**
+     * @param protocol          协议栈
+     * @param maxOutboundBytes  单个连接未写出数据的上限，小于等于0时不限制
+     * @param policy            通道不可写时的处理策略
+     * @param unwritableTimeout CLOSE策略下通道持续不可写多长时间后关闭连接，单位为毫秒
+     */
+    public ConnectorManager(Protocol protocol, long maxOutboundBytes, UnwritablePolicy policy, long
+            unwritableTimeout) {
+        this(protocol, maxOutboundBytes, policy, unwritableTimeout, null);
+    }
+
+    /**
+     * @param protocol          协议栈
+     * @param maxOutboundBytes  单个连接未写出数据的上限，小于等于0时不限制
+     * @param policy            通道不可写时的处理策略
+     * @param unwritableTimeout CLOSE策略下通道持续不可写多长时间后关闭连接，单位为毫秒
+     * @param admission         准入控制，为null时不限制
+     */
+    public ConnectorManager(Protocol protocol, long maxOutboundBytes, UnwritablePolicy policy, long
+            unwritableTimeout, AdmissionControl admission) {
         this.protocol = protocol;
+        this.maxOutboundBytes = maxOutboundBytes;
+        this.policy = policy == null ? UnwritablePolicy.PARK : policy;
+        this.unwritableTimeout = unwritableTimeout;
+        this.admission = admission;
     }
 
     /**
-     * 管理通道的注册
+     * 管理通道的注册，准入控制在注册到协议栈之前进行，未通过准入控制的连接直接关闭，不会注册到协议栈
      */
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
+        if (admission != null) {
+            admitted = admission.admit(ctx.channel());
+            if (!admitted) {
+                //此时还没有创建NettyChannel，也没有分配连接ID，被拒绝的连接不会占用协议栈的任何资源
+                ctx.close();
+                return;
+            }
+            messageBucket = admission.newMessageBucket();
+        }
         // 注册IO通道
-        protocol.register(new NettyChannel(ctx.channel()));
+        channel = new NettyChannel(ctx.channel(), protocol, maxOutboundBytes, policy);
+        ctx.channel().attr(NettyChannel.KEY).set(channel);
+        protocol.register(channel);
         super.channelRegistered(ctx);
     }
 
+    /**
+     * 通道可写状态变化时发布事件，PARK策略下通道不可写时暂停读取、恢复可写后继续读取，CLOSE策略下通道持续不可写
+     * 超时后关闭连接
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (channel == null) {
+            return;
+        }
+        String id = channel.id();
+        boolean writable = ctx.channel().isWritable();
+        logger.debug("通道{}可写状态变化，当前是否可写：{}", id, writable);
+        protocol.publish(id, ProtocolEvent.WRITABILITY, id, writable);
+
+        if (policy == UnwritablePolicy.PARK) {
+            //不再读取该连接的请求，从源头上限制该连接产生的响应，写出缓冲区不会无限增长
+            if (writable) {
+                ReadSuspension.resume(ctx.channel(), ReadSuspension.BACKPRESSURE);
+            } else {
+                ReadSuspension.suspend(ctx.channel(), ReadSuspension.BACKPRESSURE);
+            }
+        }
+        if (writable) {
+            if (unwritableTask != null) {
+                unwritableTask.cancel(false);
+                unwritableTask = null;
+            }
+        } else if (policy == UnwritablePolicy.CLOSE && unwritableTask == null) {
+            unwritableTask = ctx.executor().schedule(() -> {
+                unwritableTask = null;
+                if (!ctx.channel().isWritable()) {
+                    logger.warn("通道{}持续不可写超过{}毫秒，关闭连接", id, unwritableTimeout);
+                    channel.backpressureClose();
+                }
+            }, unwritableTimeout, TimeUnit.MILLISECONDS);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     /**
      * 管理通道的注销，用户正常注销会调用该方法，同时当通道IO异常时也会调用该方法注销通道，用户正常注销时
      */
@@ -47,21 +147,77 @@ public class ConnectorManager extends ChannelInboundHandlerAdapter {
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         // 从IO通道读取信息
         logger.debug("包装请求信息，要包装的信息为：{}", msg);
-        String id = ctx.channel().id().asLongText();
+        long id = channel.longId();
         ByteBufRef ref = (ByteBufRef) msg;
-        byteBuf = ref.getByteBuf();
-        protocol.receive(ref.getData(), id);
+        if (messageBucket != null && !isHeartbeat(ref) && !messageBucket.tryAcquire()) {
+            rateLimited(ctx, ref);
+            return;
+        }
+        if (ref.getData() == null) {
+            //零拷贝模式，缓冲区的所有权转交给协议栈，此处不能再持有该缓冲区
+            byteBuf = null;
+            protocol.receive(ref.getByteBuf(), id);
+        } else {
+            byteBuf = ref.getByteBuf();
+            protocol.receive(ref.getData(), id);
+        }
         // 将请求传递到处理链的下一个处理器，如果没有这一行则将终止处理
         super.channelRead(ctx, msg);
     }
 
+    /**
+     * 消息速率超过限制：版本2的请求回复429错误响应（关联ID与请求相同），版本1的请求无法与响应对应，直接以
+     * {@link CloseCause#REJECTED}关闭连接
+     *
+     * @param ctx ChannelHandlerContext
+     * @param ref 超过速率限制的消息
+     */
+    private void rateLimited(ChannelHandlerContext ctx, ByteBufRef ref) {
+        byte[] data = ref.getData();
+        ByteBuf buf = ref.getByteBuf();
+        int start = buf.readerIndex();
+        boolean v2 = ((data == null ? buf.getByte(start) : data[0]) & Datagram.VERSION_MASK) == Datagram.VERSION_2;
+        int correlationId = !v2 ? 0 : data == null ? buf.getInt(start + Datagram.CORRELATION_INDEX_V2) :
+                (data[Datagram.CORRELATION_INDEX_V2] & 0xFF) << 24 | (data[Datagram.CORRELATION_INDEX_V2 + 1] &
+                        0xFF) << 16 | (data[Datagram.CORRELATION_INDEX_V2 + 2] & 0xFF) << 8 |
+                        (data[Datagram.CORRELATION_INDEX_V2 + 3] & 0xFF);
+        if (data == null) {
+            buf.release();
+        }
+        if (v2) {
+            logger.debug("通道{}的消息速率超过限制，回复429", channel.id());
+            ctx.writeAndFlush(ErrorResponses.build(ctx.alloc(), null, ErrorResponses.TOO_MANY_REQUESTS,
+                    correlationId));
+        } else {
+            logger.warn("通道{}的消息速率超过限制，关闭连接", channel.id());
+            protocol.close(channel.longId(), CloseCause.REJECTED);
+        }
+    }
+
+    /**
+     * 心跳包不受消息速率限制
+     *
+     * @param ref 消息
+     * @return 消息是心跳包时返回true
+     */
+    private static boolean isHeartbeat(ByteBufRef ref) {
+        byte[] data = ref.getData();
+        ByteBuf buf = ref.getByteBuf();
+        return (data == null ? buf.getByte(buf.readerIndex() + 5) : data[5]) == HEARTBEAT;
+    }
+
     /**
      * IO异常时会调用该方法，不能在此方法内注销IO通道，IO通道会在channelRegistered方法中注销
      */
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-        logger.warn("连接异常，关闭连接{}", ctx.channel().id().asLongText(), cause);
-        protocol.close(ctx.channel().id().asLongText(), CloseCause.SYSTEM);
+        if (channel == null) {
+            logger.warn("未注册的连接异常，关闭连接{}", ctx.channel(), cause);
+            ctx.close();
+            return;
+        }
+        logger.warn("连接异常，关闭连接{}", channel.id(), cause);
+        protocol.close(channel.longId(), CloseCause.SYSTEM);
     }
 
     /**
@@ -69,7 +225,20 @@ public class ConnectorManager extends ChannelInboundHandlerAdapter {
      */
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        String id = ctx.channel().id().asLongText();
+        if (admitted) {
+            admitted = false;
+            admission.release(ctx.channel());
+        }
+        if (channel == null) {
+            //未通过准入控制的连接，没有注册到协议栈
+            super.channelInactive(ctx);
+            return;
+        }
+        if (unwritableTask != null) {
+            unwritableTask.cancel(false);
+            unwritableTask = null;
+        }
+        String id = channel.id();
         logger.debug("关闭通道{}", id);
         if (byteBuf == null || byteBuf.readableBytes() < 1) {
             logger.debug("通道{}注销，并且该通道没有未读消息", id);
@@ -1,14 +1,24 @@
 package com.joe.easysocket.server.protocol.netty;
 
+import com.joe.easysocket.server.common.DatagramUtil;
 import com.joe.easysocket.server.data.Datagram;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
+import java.nio.ByteOrder;
+
 /**
  * 数据报半包解码器；将字节流解析为正确的数据报流
+ * <p>
+ * 使用默认数据报格式时会根据每个数据报的版本号确定head长度，版本1和版本2的客户端可以同时接入
  *
  * @author joe
  */
 public class CustomFrameDecoder extends LengthFieldBasedFrameDecoder {
+    //数据报head中长度字段的起始位置
+    private final int lengthFieldOffset;
+    //是否根据版本号确定head长度
+    private final boolean versioned;
 
     /**
      * @param maxFrameLength    数据报最大长度（包含消息head和body）
@@ -17,14 +27,40 @@ public class CustomFrameDecoder extends LengthFieldBasedFrameDecoder {
      * @param headLength        数据报head的长度
      */
     public CustomFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, int headLength) {
-        super(maxFrameLength, lengthFieldOffset, lengthFieldLength, headLength - lengthFieldOffset - lengthFieldLength,
-                0);
+        this(maxFrameLength, lengthFieldOffset, lengthFieldLength, headLength, false);
     }
 
     /**
-     * 版本1时的默认构造，后续可能会变
+     * 默认构造，后续可能会变
      */
     public CustomFrameDecoder() {
-        this(Datagram.MAX_LENGTH, 1, 4, 16);
+        this(Datagram.MAX_LENGTH);
+    }
+
+    /**
+     * 默认数据报格式的构造，数据报长度超过maxFrameLength时会抛出TooLongFrameException并丢弃该数据报
+     *
+     * @param maxFrameLength 数据报最大长度（包含消息head和body）
+     */
+    public CustomFrameDecoder(int maxFrameLength) {
+        //先按照最短的head计算，读取长度字段时再根据版本号补上差值
+        this(maxFrameLength, 1, 4, Datagram.HEAD_LENGTH_V2, true);
+    }
+
+    private CustomFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, int headLength,
+                               boolean versioned) {
+        super(maxFrameLength, lengthFieldOffset, lengthFieldLength, headLength - lengthFieldOffset - lengthFieldLength,
+                0);
+        this.lengthFieldOffset = lengthFieldOffset;
+        this.versioned = versioned;
+    }
+
+    @Override
+    protected long getUnadjustedFrameLength(ByteBuf buf, int offset, int length, ByteOrder order) {
+        long frameLength = super.getUnadjustedFrameLength(buf, offset, length, order);
+        if (versioned) {
+            frameLength += DatagramUtil.headLength(buf.getByte(offset - lengthFieldOffset)) - Datagram.HEAD_LENGTH_V2;
+        }
+        return frameLength;
     }
 }
@@ -12,15 +12,36 @@ import java.util.List;
 
 /**
  * 数据读取器
+ * <p>
+ * 零拷贝模式下不会将数据复制到byte数组，而是将数据报对应的缓冲区引用计数加一后直接往下传递，缓冲区的所有权
+ * 随之转交给协议栈，最终由数据处理器释放
  *
  * @author joe
  */
 @Sharable
 public class DatagramDecoder extends MessageToMessageDecoder<ByteBuf> {
     private static final Logger logger = LoggerFactory.getLogger(DatagramDecoder.class);
+    //是否是零拷贝模式
+    private final boolean zeroCopy;
+
+    public DatagramDecoder() {
+        this(false);
+    }
+
+    /**
+     * @param zeroCopy 是否开启零拷贝模式
+     */
+    public DatagramDecoder(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        if (zeroCopy) {
+            //MessageToMessageDecoder会在decode完成后释放msg，所以此处需要先retain
+            out.add(new ByteBufRef(null, msg.retain()));
+            return;
+        }
         byte[] data = this.decode(ctx, msg);
         if (data != null) {
             out.add(new ByteBufRef(data, msg));
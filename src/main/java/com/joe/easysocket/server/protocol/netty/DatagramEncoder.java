@@ -1,5 +1,6 @@
 package com.joe.easysocket.server.protocol.netty;
 
+import com.joe.easysocket.server.common.DatagramUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
@@ -7,12 +8,35 @@ import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 /**
- * 编码器，将数据写入缓冲区等待写出
+ * 编码器，将数据写入缓冲区等待写出；只包含body的数据报（{@link OutboundDatagram}）直接编码到缓冲区中，已经编码为
+ * 缓冲区的数据报（例如压缩后的数据报）原样传递，不会再复制
+ * <p>
+ * 默认每次写出后都会flush，开启写出合并时由{@link FlushBatchHandler}负责flush
  *
  * @author joe
  */
 @Sharable
 public class DatagramEncoder extends MessageToByteEncoder<byte[]> {
+    //写出后是否立即flush
+    private final boolean autoFlush;
+
+    public DatagramEncoder() {
+        this(true);
+    }
+
+    /**
+     * @param autoFlush 写出后是否立即flush
+     */
+    public DatagramEncoder(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, byte[] msg, boolean preferDirect) throws Exception {
+        //按数据报大小分配，避免写入大数据报时缓冲区多次扩容复制
+        return preferDirect ? ctx.alloc().ioBuffer(msg.length) : ctx.alloc().heapBuffer(msg.length);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, byte[] msg, ByteBuf out) throws Exception {
         out.writeBytes(msg);
@@ -20,9 +44,24 @@ public class DatagramEncoder extends MessageToByteEncoder<byte[]> {
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        super.write(ctx, msg, promise);
-        // 写完后flush
-        ctx.flush();
+        if (msg instanceof OutboundDatagram) {
+            OutboundDatagram datagram = (OutboundDatagram) msg;
+            ByteBuf buf;
+            try {
+                buf = DatagramUtil.encode(ctx.alloc(), datagram.body, datagram.type, datagram.version, datagram
+                        .correlationId);
+            } catch (Throwable e) {
+                promise.setFailure(e);
+                return;
+            }
+            ctx.write(buf, promise);
+        } else {
+            super.write(ctx, msg, promise);
+        }
+        if (autoFlush) {
+            // 写完后flush
+            ctx.flush();
+        }
     }
 
 }
@@ -0,0 +1,46 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.mvc.data.BaseDTO;
+import com.joe.easysocket.server.ext.mvc.data.InterfaceData;
+import com.joe.utils.parse.json.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 协议层直接拒绝请求时的错误响应，格式与MVC层的错误响应相同（body为InterfaceData，data为BaseDTO的JSON）；
+ * 只有版本2的请求有关联ID，客户端根据关联ID结束对应的请求
+ *
+ * @author joe
+ */
+final class ErrorResponses {
+    //请求被路由过滤器拒绝
+    static final String FORBIDDEN = "403";
+    //请求速率超过限制
+    static final String TOO_MANY_REQUESTS = "429";
+    //MVC请求的数据报类型
+    private static final byte TYPE_MVC = 1;
+    private static final JsonParser parser = JsonParser.getInstance();
+
+    private ErrorResponses() {
+    }
+
+    /**
+     * 构建错误响应数据报
+     *
+     * @param alloc         缓冲区分配器
+     * @param route         请求的路由，可以为null
+     * @param status        错误状态码
+     * @param correlationId 请求数据报的关联ID
+     * @return 编码好的版本2响应数据报
+     */
+    static ByteBuf build(ByteBufAllocator alloc, String route, String status, int correlationId) {
+        BaseDTO<Void> dto = new BaseDTO<>();
+        dto.status(status);
+        String invoke = route == null ? "/back" : route.startsWith("/") ? "/back" + route : "/back/" + route;
+        InterfaceData data = new InterfaceData(null, invoke, parser.toJson(dto));
+        return DatagramUtil.encode(alloc, parser.toJson(data).getBytes(), TYPE_MVC, Datagram.VERSION_2,
+                correlationId);
+    }
+}
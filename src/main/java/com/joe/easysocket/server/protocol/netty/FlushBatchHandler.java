@@ -0,0 +1,106 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写出合并处理器，将多次写出合并为一次flush，减少系统调用次数；满足以下任意条件时flush：
+ * 1、累计写出的消息条数达到batchSize；
+ * 2、maxDelay大于0时，第一条未flush的消息写出后经过maxDelay毫秒；
+ * 3、maxDelay小于等于0时，当前事件循环中已经排队的任务执行完毕后；
+ * 4、上层主动调用flush或者通道关闭。
+ * <p>
+ * 该处理器必须位于编码器之前（靠近pipeline的head），并且每个通道都必须new一个
+ *
+ * @author joe
+ */
+public class FlushBatchHandler extends ChannelDuplexHandler {
+    //累计该条数的消息后flush
+    private final int batchSize;
+    //消息的最大延迟，单位为毫秒
+    private final long maxDelay;
+    //未flush的消息条数
+    private int pending;
+    //已经提交的flush任务
+    private ScheduledFuture<?> scheduled;
+    //是否已经提交了本轮事件循环的flush任务
+    private boolean flushQueued;
+    private ChannelHandlerContext ctx;
+    private final Runnable flushTask = () -> {
+        scheduled = null;
+        flushQueued = false;
+        if (pending > 0) {
+            flushNow(ctx);
+        }
+    };
+
+    /**
+     * @param batchSize 累计该条数的消息后flush
+     * @param maxDelay  消息的最大延迟，单位为毫秒，小于等于0时在本轮事件循环结束时flush
+     */
+    public FlushBatchHandler(int batchSize, long maxDelay) {
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        ctx.write(msg, promise);
+        if (++pending >= batchSize) {
+            flushNow(ctx);
+        } else if (maxDelay > 0) {
+            if (scheduled == null) {
+                scheduled = ctx.executor().schedule(flushTask, maxDelay, TimeUnit.MILLISECONDS);
+            }
+        } else if (!flushQueued) {
+            flushQueued = true;
+            ctx.executor().execute(flushTask);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        flushNow(ctx);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (pending > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        pending = 0;
+        ctx.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * 心跳处理器，直接在IO线程中根据数据报head识别心跳包，刷新连接的最后活动时间后释放缓冲区，心跳包不会再往下传递，
+ * 也不会进入协议栈和队列；非心跳包原样往下传递
+ * <p>
+ * 开启回复时，版本2的心跳包如果带有关联ID，回复的心跳包使用相同的关联ID，客户端可以据此匹配自己发出的ping；
+ * 没有关联ID的心跳包使用共享的回复
+ * <p>
+ * 该处理器必须位于CustomFrameDecoder之后
+ *
+ * @author joe
+ */
+@Sharable
+public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+    //版本1的心跳回复，所有连接共享，不可释放
+    private static final ByteBuf PONG_V1 = pong(Datagram.VERSION_1);
+    //版本2的心跳回复，所有连接共享，不可释放
+    private static final ByteBuf PONG_V2 = pong(Datagram.VERSION_2);
+    //收到心跳包后是否回复一个心跳包
+    private final boolean pong;
+
+    public HeartbeatHandler() {
+        this(false);
+    }
+
+    /**
+     * @param pong 收到心跳包后是否回复一个心跳包
+     */
+    public HeartbeatHandler(boolean pong) {
+        this.pong = pong;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf buf = (ByteBuf) msg;
+        if (buf.getByte(buf.readerIndex() + 5) != HEARTBEAT) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        boolean v2 = (buf.getByte(buf.readerIndex()) & Datagram.VERSION_MASK) == Datagram.VERSION_2;
+        int correlationId = v2 ? buf.getInt(buf.readerIndex() + Datagram.CORRELATION_INDEX_V2) : 0;
+        buf.release();
+        NettyChannel channel = ctx.channel().attr(NettyChannel.KEY).get();
+        if (channel != null) {
+            channel.heartbeat();
+        }
+        if (!pong) {
+            return;
+        }
+        if (correlationId != 0) {
+            ctx.writeAndFlush(DatagramUtil.encode(ctx.alloc(), null, HEARTBEAT, Datagram.VERSION_2, correlationId),
+                    ctx.voidPromise());
+        } else {
+            ctx.writeAndFlush((v2 ? PONG_V2 : PONG_V1).duplicate(), ctx.voidPromise());
+        }
+    }
+
+    /**
+     * 构建共享的心跳回复，head与当前系统默认字符集无关，类加载时不会失败
+     */
+    private static ByteBuf pong(byte version) {
+        return Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(DatagramUtil.empty(HEARTBEAT, version, 0)));
+    }
+}
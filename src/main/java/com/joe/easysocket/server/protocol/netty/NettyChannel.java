@@ -1,12 +1,25 @@
 package com.joe.easysocket.server.protocol.netty;
 
+import com.joe.easysocket.server.common.CoarseClock;
+import com.joe.easysocket.server.common.ConnectionIds;
+import com.joe.easysocket.server.protocol.CloseCause;
 import com.joe.easysocket.server.protocol.PChannel;
+import com.joe.easysocket.server.protocol.Protocol;
 import com.joe.easysocket.server.protocol.ProtocolFuture;
+import com.joe.easysocket.server.protocol.UnwritablePolicy;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.AttributeKey;
 import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * netty的channel
@@ -14,23 +27,89 @@ import java.net.InetSocketAddress;
  * @author joe
  */
 public class NettyChannel implements PChannel {
+    private static final Logger logger = LoggerFactory.getLogger(NettyChannel.class);
+    //netty channel中保存对应NettyChannel的属性key
+    static final AttributeKey<NettyChannel> KEY = AttributeKey.valueOf("easysocket.channel");
     private Channel channel;
-    // 最后一次活动时间
-    private long lastActive;
+    // 最后一次活动时间，IO线程写入，心跳超时检查线程读取
+    private volatile long lastActive;
     //channel的ID
     private String id;
+    //channel的数字ID
+    private final long longId;
+    //协议栈，写出缓冲区积压需要关闭连接时使用，为null时直接关闭底层连接
+    private final Protocol protocol;
+    //未写出数据的上限，小于等于0时不限制
+    private final long maxOutboundBytes;
+    //通道不可写时的处理策略
+    private final UnwritablePolicy policy;
+    //已经提交但是还未写出的数据大小
+    private final AtomicLong outboundBytes = new AtomicLong();
 
     public NettyChannel(@NonNull Channel channel) {
+        this(channel, null, 0, UnwritablePolicy.PARK);
+    }
+
+    /**
+     * @param channel          netty的channel
+     * @param protocol         协议栈，写出缓冲区积压需要关闭连接时使用
+     * @param maxOutboundBytes 未写出数据的上限，小于等于0时不限制
+     * @param policy           通道不可写时的处理策略
+     */
+    public NettyChannel(@NonNull Channel channel, Protocol protocol, long maxOutboundBytes, UnwritablePolicy policy) {
         this.channel = channel;
-        this.id = channel.id().asLongText();
-        this.lastActive = System.currentTimeMillis();
+        this.longId = ConnectionIds.next();
+        this.id = ConnectionIds.toString(longId);
+        this.lastActive = CoarseClock.now();
+        this.protocol = protocol;
+        this.maxOutboundBytes = maxOutboundBytes;
+        this.policy = policy == null ? UnwritablePolicy.PARK : policy;
     }
 
     @Override
     public ProtocolFuture write(byte[] data) {
-        this.lastActive = System.currentTimeMillis();
+        return write(data, data.length);
+    }
+
+    /**
+     * 写出只包含body的数据报，由{@link DatagramEncoder}直接编码到连接的缓冲区中
+     */
+    @Override
+    public ProtocolFuture write(byte[] body, byte type, byte version, int correlationId) {
+        OutboundDatagram datagram = new OutboundDatagram(body, type, version, correlationId);
+        return write(datagram, datagram.length());
+    }
+
+    /**
+     * 写出消息
+     *
+     * @param msg  要写出的消息（编码好的数据报数组或者{@link OutboundDatagram}）
+     * @param size 编码后的数据报大小
+     * @return 异步结果
+     */
+    private ProtocolFuture write(Object msg, int size) {
+        this.lastActive = CoarseClock.now();
         if (!isClosed()) {
-            ChannelFuture future = channel.write(data);
+            if (policy == UnwritablePolicy.DROP && !channel.isWritable()) {
+                logger.debug("通道{}不可写，丢弃消息", id);
+                return ProtocolFuture.ERRORFUTURE;
+            }
+
+            //先占用再检查，超过上限时回滚，多个线程同时写出时不会超过上限
+            long outbound = outboundBytes.addAndGet(size);
+            if (maxOutboundBytes > 0 && outbound > maxOutboundBytes) {
+                outboundBytes.addAndGet(-size);
+                if (policy == UnwritablePolicy.DROP) {
+                    logger.debug("通道{}未写出的数据超过上限{}，丢弃消息", id, maxOutboundBytes);
+                } else {
+                    logger.warn("通道{}未写出的数据超过上限{}，关闭连接", id, maxOutboundBytes);
+                    backpressureClose();
+                }
+                return ProtocolFuture.ERRORFUTURE;
+            }
+
+            ChannelFuture future = submit(msg);
+            future.addListener(f -> outboundBytes.addAndGet(-size));
             return new ProtocolFuture() {
                 @Override
                 public boolean isSuccess() {
@@ -47,9 +126,49 @@ public class NettyChannel implements PChannel {
         }
     }
 
+    /**
+     * 将消息写入连接；在IO线程之外调用时netty提交的写任务不会唤醒事件循环，连接空闲时消息要等到select超时（最长1秒）
+     * 才会写出，所以提交一个普通任务
+     *
+     * @param msg 要写出的消息
+     * @return 写出结果
+     */
+    private ChannelFuture submit(Object msg) {
+        if (channel.eventLoop().inEventLoop()) {
+            return channel.write(msg);
+        }
+        ChannelPromise promise = channel.newPromise();
+        try {
+            channel.eventLoop().execute(() -> channel.write(msg, promise));
+        } catch (RejectedExecutionException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    /**
+     * 因为写出缓冲区积压关闭连接
+     */
+    void backpressureClose() {
+        if (protocol == null) {
+            close();
+        } else {
+            protocol.close(longId, CloseCause.BACKPRESSURE);
+        }
+    }
+
+    /**
+     * 获取已经提交但是还未写出的数据大小
+     *
+     * @return 未写出的数据大小，单位为byte
+     */
+    public long getOutboundBytes() {
+        return outboundBytes.get();
+    }
+
     @Override
     public void heartbeat() {
-        this.lastActive = System.currentTimeMillis();
+        this.lastActive = CoarseClock.now();
     }
 
     @Override
@@ -57,6 +176,11 @@ public class NettyChannel implements PChannel {
         return id;
     }
 
+    @Override
+    public long longId() {
+        return longId;
+    }
+
     @Override
     public void close() {
         if (isClosed()) {
@@ -75,14 +199,18 @@ public class NettyChannel implements PChannel {
 
     @Override
     public String getRemoteHost() {
-        InetSocketAddress addr = (InetSocketAddress) channel.remoteAddress();
-        return addr.getHostString();
+        SocketAddress addr = channel.remoteAddress();
+        if (addr instanceof InetSocketAddress) {
+            return ((InetSocketAddress) addr).getHostString();
+        }
+        //Unix domain socket没有IP，返回socket的路径
+        return addr instanceof DomainSocketAddress ? ((DomainSocketAddress) addr).path() : String.valueOf(addr);
     }
 
     @Override
     public int getPort() {
-        InetSocketAddress addr = (InetSocketAddress) channel.remoteAddress();
-        return addr.getPort();
+        SocketAddress addr = channel.remoteAddress();
+        return addr instanceof InetSocketAddress ? ((InetSocketAddress) addr).getPort() : 0;
     }
 
     @Override
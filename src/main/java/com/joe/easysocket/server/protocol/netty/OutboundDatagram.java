@@ -0,0 +1,36 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.data.Datagram;
+
+/**
+ * 待写出的数据报，只包含body和head字段，由{@link DatagramEncoder}直接编码到连接的缓冲区中，写出时body只复制一次
+ *
+ * @author joe
+ */
+final class OutboundDatagram {
+    //数据报body
+    final byte[] body;
+    //数据报类型
+    final byte type;
+    //数据报版本
+    final byte version;
+    //关联ID，只有版本2的数据报会写入
+    final int correlationId;
+
+    OutboundDatagram(byte[] body, byte type, byte version, int correlationId) {
+        this.body = body;
+        this.type = type;
+        this.version = version;
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * 编码后的数据报长度
+     *
+     * @return 编码后的数据报长度
+     */
+    int length() {
+        return (version == Datagram.VERSION_2 ? Datagram.HEAD_LENGTH_V2 : Datagram.HEAD_LENGTH_V1) + (body == null ?
+                0 : body.length);
+    }
+}
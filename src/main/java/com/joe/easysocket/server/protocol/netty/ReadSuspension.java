@@ -0,0 +1,50 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 连接读取的暂停和恢复，多个原因（分块流缓存已满、写出缓冲区不可写）可以同时暂停读取，只有所有原因都解除后才会恢复
+ * <p>
+ * 只能在连接的IO线程中调用
+ *
+ * @author joe
+ */
+final class ReadSuspension {
+    //原因：分块流缓存的分块数达到上限
+    static final int CHUNK = 1;
+    //原因：PARK策略下通道不可写
+    static final int BACKPRESSURE = 1 << 1;
+    //netty channel中保存当前暂停原因的属性key
+    private static final AttributeKey<Integer> KEY = AttributeKey.valueOf("easysocket.readSuspension");
+
+    private ReadSuspension() {
+    }
+
+    /**
+     * 因为指定原因暂停读取
+     *
+     * @param channel 连接
+     * @param reason  暂停原因
+     */
+    static void suspend(Channel channel, int reason) {
+        Integer reasons = channel.attr(KEY).get();
+        channel.attr(KEY).set((reasons == null ? 0 : reasons) | reason);
+        channel.config().setAutoRead(false);
+    }
+
+    /**
+     * 解除指定的暂停原因，没有其他原因时恢复读取
+     *
+     * @param channel 连接
+     * @param reason  暂停原因
+     */
+    static void resume(Channel channel, int reason) {
+        Integer reasons = channel.attr(KEY).get();
+        int left = (reasons == null ? 0 : reasons) & ~reason;
+        channel.attr(KEY).set(left);
+        if (left == 0) {
+            channel.config().setAutoRead(true);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.ext.RouteFilter;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 路由过滤处理器，对带有路由字段的数据报调用{@link RouteFilter}，被拒绝的数据报不会进入协议栈，直接回复403错误
+ * 响应（关联ID与请求相同，客户端可以立即结束对应的请求）；没有路由字段的数据报原样往下传递
+ * <p>
+ * 该处理器必须位于解压器和分块数据报处理器之后
+ *
+ * @author joe
+ */
+@Sharable
+public class RouteFilterHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(RouteFilterHandler.class);
+    //路由过滤器
+    private final RouteFilter filter;
+
+    /**
+     * @param filter 路由过滤器
+     */
+    public RouteFilterHandler(RouteFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf buf = (ByteBuf) msg;
+        int start = buf.readerIndex();
+        String route;
+        try {
+            route = DatagramUtil.route(buf, start);
+        } catch (Exception e) {
+            buf.release();
+            throw e;
+        }
+        if (route == null) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        NettyChannel channel = ctx.channel().attr(NettyChannel.KEY).get();
+        String id = channel == null ? null : channel.id();
+        int priority = DatagramUtil.flags(buf, start) & Datagram.PRIORITY_MASK;
+        if (filter.accept(id, route, priority)) {
+            ctx.fireChannelRead(msg);
+        } else {
+            logger.debug("连接{}请求的路由{}被拒绝", id, route);
+            //带有路由字段的一定是版本2的数据报
+            int correlationId = buf.getInt(start + Datagram.CORRELATION_INDEX_V2);
+            buf.release();
+            ctx.writeAndFlush(ErrorResponses.build(ctx.alloc(), route, ErrorResponses.FORBIDDEN, correlationId));
+        }
+    }
+}
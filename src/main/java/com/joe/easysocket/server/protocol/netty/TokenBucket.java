@@ -0,0 +1,47 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶，使用GCRA算法实现：只记录理论上下一个令牌可用的时间，获取令牌只需要一次CAS，不需要定时补充令牌
+ *
+ * @author joe
+ */
+final class TokenBucket {
+    //产生一个令牌的间隔，单位为纳秒
+    private final long interval;
+    //突发量对应的时间容差，单位为纳秒
+    private final long tolerance;
+    //理论上下一个令牌可用的时间
+    private final AtomicLong tat;
+
+    /**
+     * @param rate  每秒产生的令牌数，必须大于0
+     * @param burst 允许的最大突发量，小于1时按1处理
+     */
+    TokenBucket(long rate, long burst) {
+        this.interval = Math.max(TimeUnit.SECONDS.toNanos(1) / rate, 1);
+        this.tolerance = interval * (Math.max(burst, 1) - 1);
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 获取成功返回true
+     */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            if (base - now > tolerance) {
+                return false;
+            }
+            if (tat.compareAndSet(current, base + interval)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.CoarseClock;
+import com.joe.easysocket.server.common.ConnectionIds;
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.protocol.PChannel;
+import com.joe.easysocket.server.protocol.ProtocolFuture;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.socket.DatagramPacket;
+import lombok.NonNull;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * UDP的虚拟连接，以客户端地址区分连接，所有虚拟连接共享同一个UDP socket；关闭虚拟连接不会关闭底层socket，
+ * 只会将其从地址表中移除，之后该地址再发来数据时会建立新的虚拟连接
+ *
+ * @author joe
+ */
+public class UdpChannel implements PChannel {
+    //底层UDP socket
+    private final Channel channel;
+    //客户端地址
+    private final InetSocketAddress remote;
+    //所属的地址表，关闭时从中移除
+    private final Map<InetSocketAddress, UdpChannel> channels;
+    //准入控制，关闭时释放名额，为null时不限制
+    private final AdmissionControl admission;
+    //消息速率令牌桶，为null时不限制
+    private final TokenBucket messageBucket;
+    //channel的ID
+    private final String id;
+    //channel的数字ID
+    private final long longId;
+    // 最后一次活动时间
+    private volatile long lastActive;
+    //是否已经关闭
+    private volatile boolean closed;
+
+    /**
+     * @param channel  底层UDP socket
+     * @param remote   客户端地址
+     * @param channels  所属的地址表，关闭时从中移除
+     * @param admission 准入控制，该地址已经通过准入控制，为null时不限制
+     */
+    UdpChannel(@NonNull Channel channel, @NonNull InetSocketAddress remote, @NonNull Map<InetSocketAddress,
+            UdpChannel> channels, AdmissionControl admission) {
+        this.channel = channel;
+        this.remote = remote;
+        this.channels = channels;
+        this.admission = admission;
+        this.messageBucket = admission == null ? null : admission.newMessageBucket();
+        this.longId = ConnectionIds.next();
+        this.id = ConnectionIds.toString(longId);
+        this.lastActive = CoarseClock.now();
+    }
+
+    @Override
+    public ProtocolFuture write(byte[] data) {
+        this.lastActive = CoarseClock.now();
+        if (isClosed()) {
+            return ProtocolFuture.ERRORFUTURE;
+        }
+        return write(Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * 写出只包含body的数据报，直接编码到底层socket分配的缓冲区中
+     */
+    @Override
+    public ProtocolFuture write(byte[] body, byte type, byte version, int correlationId) {
+        this.lastActive = CoarseClock.now();
+        if (isClosed()) {
+            return ProtocolFuture.ERRORFUTURE;
+        }
+        return write(DatagramUtil.encode(channel.alloc(), body, type, version, correlationId));
+    }
+
+    private ProtocolFuture write(ByteBuf buf) {
+        ChannelFuture future = channel.writeAndFlush(new DatagramPacket(buf, remote));
+        return new ProtocolFuture() {
+            @Override
+            public boolean isSuccess() {
+                return future.isSuccess();
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+        };
+    }
+
+    @Override
+    public void heartbeat() {
+        this.lastActive = CoarseClock.now();
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public long longId() {
+        return longId;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return remote.getHostString();
+    }
+
+    @Override
+    public int getPort() {
+        return remote.getPort();
+    }
+
+    /**
+     * 获取一个消息令牌，只在UDP socket的IO线程中调用
+     *
+     * @return 消息速率没有超过限制时返回true
+     */
+    boolean tryAcquireMessage() {
+        return messageBucket == null || messageBucket.tryAcquire();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        //只有第一次从地址表中移除时释放准入名额
+        if (channels.remove(remote, this) && admission != null) {
+            admission.release(remote);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed || !channel.isOpen();
+    }
+
+    @Override
+    public long getLastActive() {
+        return lastActive;
+    }
+}
@@ -0,0 +1,147 @@
+package com.joe.easysocket.server.protocol.netty;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.protocol.CloseCause;
+import com.joe.easysocket.server.protocol.Protocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * UDP数据处理器，每个UDP包中可以包含一个或多个完整的数据报（数据报不能跨包），以客户端地址区分虚拟连接，
+ * 第一次收到某个地址的合法数据报时向协议栈注册一个{@link UdpChannel}，之后由协议栈的心跳超时检查负责注销
+ * <p>
+ * 心跳包在此处直接处理，不会进入协议栈；UDP不支持压缩、分块和路由过滤，带有对应标志的数据报直接丢弃
+ * <p>
+ * UDP的来源地址可以伪造，为了不被用作反射放大攻击：虚拟连接数有上限，新地址需要通过准入控制，被拒绝或者超过
+ * 消息速率的数据报直接丢弃，不会向来源地址回复任何数据
+ *
+ * @author joe
+ */
+public class UdpDatagramHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+    private static final Logger logger = LoggerFactory.getLogger(UdpDatagramHandler.class);
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+    //UDP不支持的标志位
+    private static final int UNSUPPORTED_FLAGS = Datagram.FLAG_COMPRESSED | Datagram.FLAG_CONTINUATION;
+    //协议栈
+    private final Protocol protocol;
+    //是否是零拷贝模式
+    private final boolean zeroCopy;
+    //准入控制，为null时不限制
+    private final AdmissionControl admission;
+    //虚拟连接数的上限
+    private final int maxChannels;
+    //当前所有虚拟连接，key为客户端地址
+    private final ConcurrentMap<InetSocketAddress, UdpChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * @param protocol 协议栈
+     * @param zeroCopy 是否开启零拷贝模式
+     */
+    public UdpDatagramHandler(Protocol protocol, boolean zeroCopy) {
+        this(protocol, zeroCopy, null, 4096);
+    }
+
+    /**
+     * @param protocol    协议栈
+     * @param zeroCopy    是否开启零拷贝模式
+     * @param admission   准入控制，为null时不限制
+     * @param maxChannels 虚拟连接数的上限
+     */
+    public UdpDatagramHandler(Protocol protocol, boolean zeroCopy, AdmissionControl admission, int maxChannels) {
+        this.protocol = protocol;
+        this.zeroCopy = zeroCopy;
+        this.admission = admission;
+        this.maxChannels = maxChannels;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) throws Exception {
+        InetSocketAddress sender = packet.sender();
+        ByteBuf content = packet.content();
+        UdpChannel channel = channels.get(sender);
+        if (channel != null && channel.isClosed()) {
+            channel = null;
+        }
+
+        while (content.readableBytes() >= Datagram.HEAD_LENGTH_V2) {
+            int start = content.readerIndex();
+            int head = DatagramUtil.headLength(content.getByte(start));
+            long frameLength = head + content.getUnsignedInt(start + 1);
+            if (content.readableBytes() < head || content.readableBytes() < frameLength) {
+                logger.warn("地址{}发来的数据报不完整，丢弃剩余{}字节", sender, content.readableBytes());
+                return;
+            }
+
+            if ((DatagramUtil.flags(content, start) & UNSUPPORTED_FLAGS) != 0 || DatagramUtil.hasRoute(content,
+                    start)) {
+                logger.warn("地址{}发来的数据报带有UDP不支持的压缩、分块或者路由标志，丢弃该数据报", sender);
+            } else {
+                if (channel == null && (channel = register(ctx, sender)) == null) {
+                    //该地址没有通过准入控制，包中剩余的数据报也不再处理
+                    return;
+                }
+                if (content.getByte(start + 5) == HEARTBEAT) {
+                    channel.heartbeat();
+                } else if (!channel.tryAcquireMessage()) {
+                    logger.debug("虚拟连接{}的消息速率超过限制，丢弃消息", channel.id());
+                } else if (zeroCopy) {
+                    protocol.receive(content.retainedSlice(start, (int) frameLength), channel.longId());
+                } else {
+                    byte[] data = new byte[(int) frameLength];
+                    content.getBytes(start, data);
+                    protocol.receive(data, channel.longId());
+                }
+            }
+            content.skipBytes((int) frameLength);
+        }
+        if (content.isReadable()) {
+            logger.warn("地址{}发来的数据报不完整，丢弃剩余{}字节", sender, content.readableBytes());
+        }
+    }
+
+    /**
+     * 为新地址注册虚拟连接，只在UDP socket的IO线程中调用
+     *
+     * @param ctx    ChannelHandlerContext
+     * @param sender 客户端地址
+     * @return 注册的虚拟连接，虚拟连接数达到上限或者没有通过准入控制时返回null
+     */
+    private UdpChannel register(ChannelHandlerContext ctx, InetSocketAddress sender) {
+        if (channels.size() >= maxChannels) {
+            logger.warn("UDP虚拟连接数达到上限{}，丢弃地址{}发来的数据", maxChannels, sender);
+            return null;
+        }
+        if (admission != null && !admission.admit(sender)) {
+            return null;
+        }
+        UdpChannel channel = new UdpChannel(ctx.channel(), sender, channels, admission);
+        //旧的虚拟连接已经关闭，替换掉
+        channels.put(sender, channel);
+        logger.debug("地址{}发来数据，注册虚拟连接{}", sender, channel.id());
+        protocol.register(channel);
+        return channel;
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        //UDP socket是所有客户端共享的，单个数据包出错不能关闭
+        logger.warn("UDP数据处理异常", cause);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        channels.values().forEach(channel -> protocol.close(channel.longId(), CloseCause.SYSTEM));
+        channels.clear();
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,137 @@
+package com.joe.test.easysocket.server;
+
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.common.Function;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DataWorker;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.mvc.BeanContainer;
+import com.joe.easysocket.server.ext.mvc.context.session.SessionManager;
+import com.joe.easysocket.server.protocol.ProtocolImpl;
+import com.joe.easysocket.server.protocol.netty.ConnectorManager;
+import com.joe.easysocket.server.protocol.netty.CustomFrameDecoder;
+import com.joe.easysocket.server.protocol.netty.DatagramDecoder;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 协议栈排空测试：只有数据处理器对每个请求应答时排空才会等待应答
+ *
+ * @author joe
+ */
+public class ProtocolDrainTest {
+    //MVC请求的数据报类型
+    private static final byte TYPE_MVC = 1;
+    private PublishCenter publishCenter;
+    private CustomDeque<ProtocolData> deque;
+    private ProtocolImpl protocol;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void init() {
+        publishCenter = new DefaultPublishCenter();
+        deque = new CustomDequeImpl<>();
+        protocol = ProtocolImpl.builder().publishCenter(publishCenter).deque(deque).heartbeaat(30).inline(true)
+                .build();
+        protocol.init();
+        channel = new EmbeddedChannel(new CustomFrameDecoder(), new DatagramDecoder(), new ConnectorManager
+                (protocol));
+    }
+
+    @After
+    public void destroy() {
+        channel.finishAndReleaseAll();
+        protocol.destroy();
+    }
+
+    @Test
+    public void skipWaitWithoutAck() {
+        protocol.register(new SilentWorker(false));
+        channel.writeInbound(DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, TYPE_MVC, Datagram
+                .VERSION_2, 1));
+        assertEquals(1, deque.size());
+
+        //请求永远不会被应答，不应答的数据处理器不等待
+        long begin = System.currentTimeMillis();
+        assertTrue(protocol.drain(10000));
+        assertTrue(System.currentTimeMillis() - begin < 5000);
+        assertFalse(channel.isActive());
+    }
+
+    @Test
+    public void waitForAck() {
+        protocol.register(new SilentWorker(true));
+        channel.writeInbound(DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, TYPE_MVC, Datagram
+                .VERSION_2, 1));
+
+        //应答的数据处理器没有应答时等待到超时
+        assertFalse(protocol.drain(200));
+    }
+
+    @Test
+    public void drainAfterAck() {
+        protocol.register(new SilentWorker(true));
+        channel.writeInbound(DatagramUtil.encode(UnpooledByteBufAllocator.DEFAULT, null, TYPE_MVC, Datagram
+                .VERSION_2, 1));
+        publishCenter.pub("/protocol/receive", ProtocolData.ack(deque.pollFirst().getChannelInfo()));
+
+        assertTrue(protocol.drain(10000));
+    }
+
+    /**
+     * 不处理任何数据的数据处理器，只声明是否对每个请求应答
+     */
+    private static class SilentWorker implements DataWorker {
+        //是否声明对每个请求应答
+        private final boolean acknowledges;
+
+        private SilentWorker(boolean acknowledges) {
+            this.acknowledges = acknowledges;
+        }
+
+        @Override
+        public boolean acknowledges() {
+            return acknowledges;
+        }
+
+        @Override
+        public String start(String name, Function callback) {
+            return name;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void register(CustomDeque<ProtocolData> deque) {
+        }
+
+        @Override
+        public void register(PublishCenter publishCenter, String channel) {
+        }
+
+        @Override
+        public void register(SessionManager sessionManager) {
+        }
+
+        @Override
+        public void register(BeanContainer beanContainer) {
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
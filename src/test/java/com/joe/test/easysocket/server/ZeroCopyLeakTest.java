@@ -0,0 +1,297 @@
+package com.joe.test.easysocket.server;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.joe.easysocket.server.common.DatagramUtil;
+import com.joe.easysocket.server.data.Datagram;
+import com.joe.easysocket.server.data.ProtocolData;
+import com.joe.easysocket.server.ext.CustomDeque;
+import com.joe.easysocket.server.ext.CustomDequeImpl;
+import com.joe.easysocket.server.ext.DefaultPublishCenter;
+import com.joe.easysocket.server.ext.PublishCenter;
+import com.joe.easysocket.server.ext.mvc.MvcDataworker;
+import com.joe.easysocket.server.ext.mvc.container.BeanContainerImpl;
+import com.joe.easysocket.server.protocol.ProtocolImpl;
+import com.joe.easysocket.server.protocol.UnwritablePolicy;
+import com.joe.easysocket.server.protocol.netty.AdmissionControl;
+import com.joe.easysocket.server.protocol.netty.ConnectorManager;
+import com.joe.easysocket.server.protocol.netty.CustomFrameDecoder;
+import com.joe.easysocket.server.protocol.netty.DatagramDecoder;
+import com.joe.easysocket.server.protocol.netty.HeartbeatHandler;
+import com.joe.easysocket.server.protocol.netty.RouteFilterHandler;
+import com.joe.easysocket.server.protocol.netty.UdpDatagramHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 零拷贝接收的缓冲区泄漏测试：在PARANOID级别的泄漏检测下，数据报经过服务端的处理链、协议栈和MVC数据处理器，
+ * 解析失败、心跳、路由被拒绝、超过消息速率、IO线程直接处理和线程池处理以及UDP包切片的各条路径都必须释放缓冲区；
+ * 每个测试结束时断言输入缓冲区的引用计数为0，并且泄漏检测器没有报告泄漏
+ *
+ * @author joe
+ */
+public class ZeroCopyLeakTest {
+    //心跳包的数据报类型
+    private static final byte HEARTBEAT = 0;
+    //MVC请求的数据报类型
+    private static final byte TYPE_MVC = 1;
+    //原来的泄漏检测级别
+    private static ResourceLeakDetector.Level level;
+    //收集泄漏检测器报告的泄漏
+    private static ListAppender<ILoggingEvent> leaks;
+    private PublishCenter publishCenter;
+    private CustomDeque<ProtocolData> deque;
+    private MvcDataworker dataworker;
+    private ProtocolImpl protocol;
+    private EmbeddedChannel channel;
+
+    @BeforeClass
+    public static void enableLeakDetection() {
+        level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        leaks = new ListAppender<>();
+        leaks.start();
+        ((Logger) LoggerFactory.getLogger(ResourceLeakDetector.class)).addAppender(leaks);
+    }
+
+    @AfterClass
+    public static void restoreLeakDetection() {
+        ((Logger) LoggerFactory.getLogger(ResourceLeakDetector.class)).detachAppender(leaks);
+        ResourceLeakDetector.setLevel(level);
+    }
+
+    @Before
+    public void init() {
+        publishCenter = new DefaultPublishCenter();
+        deque = new CustomDequeImpl<>();
+        //只扫描框架内置的数据编解码器，测试的请求都不会到达资源
+        dataworker = new MvcDataworker(MvcDataworker.MvcDataworkerConfig.builder().publishCenter(publishCenter)
+                .deque(deque).beanContainer(new BeanContainerImpl("com.joe.easysocket.server.ext.mvc")).drainTimeout
+                        (1000).managed(true).build());
+        dataworker.start("泄漏测试", null);
+    }
+
+    @After
+    public void destroy() throws Exception {
+        if (channel != null) {
+            channel.finishAndReleaseAll();
+        }
+        if (protocol != null) {
+            protocol.destroy();
+        }
+        dataworker.shutdown();
+
+        //泄漏检测器在缓冲区被回收后的下一次分配时报告泄漏
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            PooledByteBufAllocator.DEFAULT.buffer(1).release();
+        }
+        assertTrue("检测到缓冲区泄漏：" + leaks.list, leaks.list.isEmpty());
+    }
+
+    @Test
+    public void decodeError() {
+        tcp(true);
+        //未知的字符集ID，数据处理器解析数据报时失败
+        ByteBuf request = datagram(new byte[]{'{', '}'}, TYPE_MVC, 1);
+        request.setByte(Datagram.CHARSET_INDEX_V2, Datagram.CHARSET_ID_MASK);
+        channel.writeInbound(request);
+
+        assertEquals(0, request.refCnt());
+        assertTrue(channel.isActive());
+    }
+
+    @Test
+    public void illegalRoute() {
+        tcp(true, new RouteFilterHandler((id, route, priority) -> true));
+        //路由长度超过body长度，路由过滤器读取路由时失败，连接被关闭
+        ByteBuf request = datagram(new byte[]{0, 10}, TYPE_MVC, 1);
+        request.setByte(Datagram.CHARSET_INDEX_V2, request.getByte(Datagram.CHARSET_INDEX_V2) | Datagram.FLAG_ROUTE);
+        channel.writeInbound(request);
+
+        assertEquals(0, request.refCnt());
+        assertFalse(channel.isActive());
+    }
+
+    @Test
+    public void ioHeartbeat() {
+        //IO线程直接处理并回复心跳包
+        tcp(true, new HeartbeatHandler(true));
+        ByteBuf ping = datagram(null, HEARTBEAT, 1);
+        channel.writeInbound(ping);
+
+        assertEquals(0, ping.refCnt());
+        release(channel.readOutbound());
+    }
+
+    @Test
+    public void protocolHeartbeat() {
+        //心跳包进入协议栈，由协议栈释放
+        tcp(true);
+        ByteBuf ping = datagram(null, HEARTBEAT, 1);
+        channel.writeInbound(ping);
+
+        assertEquals(0, ping.refCnt());
+    }
+
+    @Test
+    public void routeRejected() {
+        tcp(true, new RouteFilterHandler((id, route, priority) -> !"admin".equals(route)));
+        ByteBuf request = datagram(route("admin"), TYPE_MVC, 1);
+        request.setByte(Datagram.CHARSET_INDEX_V2, request.getByte(Datagram.CHARSET_INDEX_V2) | Datagram.FLAG_ROUTE);
+        channel.writeInbound(request);
+
+        assertEquals(0, request.refCnt());
+        //403错误响应
+        release(channel.readOutbound());
+    }
+
+    @Test
+    public void rateLimited() {
+        //每秒一条消息，没有突发
+        tcp(true, new AdmissionControl(0, 0, 0, 0, 1, 1));
+        ByteBuf first = datagram(null, TYPE_MVC, 1);
+        ByteBuf second = datagram(null, TYPE_MVC, 2);
+        channel.writeInbound(first);
+        channel.writeInbound(second);
+
+        assertEquals(0, first.refCnt());
+        assertEquals(0, second.refCnt());
+        //429错误响应
+        release(channel.readOutbound());
+    }
+
+    @Test
+    public void inlineReceive() {
+        tcp(true);
+        ByteBuf request = datagram(null, TYPE_MVC, 1);
+        channel.writeInbound(request);
+
+        //数据处理器在IO线程中解析完毕后立即释放
+        assertEquals(0, request.refCnt());
+    }
+
+    @Test
+    public void pooledReceive() throws Exception {
+        tcp(false);
+        ByteBuf request = datagram(null, TYPE_MVC, 1);
+        channel.writeInbound(request);
+
+        //经过协议栈的线程池、队列和数据处理器的工作线程后释放
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (request.refCnt() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, request.refCnt());
+    }
+
+    @Test
+    public void udpSlice() {
+        protocol = protocol(true);
+        channel = channel(new UdpDatagramHandler(protocol, true));
+        //一个UDP包中包含心跳包、请求、UDP不支持的压缩数据报和请求，每个请求都是UDP包的切片
+        ByteBuf compressed = datagram(new byte[]{1}, TYPE_MVC, 3);
+        compressed.setByte(DatagramUtil.flagsIndex(Datagram.VERSION_2), Datagram.FLAG_COMPRESSED);
+        ByteBuf content = PooledByteBufAllocator.DEFAULT.buffer();
+        write(content, datagram(null, HEARTBEAT, 1));
+        write(content, datagram(null, TYPE_MVC, 2));
+        write(content, compressed);
+        write(content, datagram(null, TYPE_MVC, 4));
+        channel.writeInbound(new DatagramPacket(content, new InetSocketAddress("127.0.0.1", 10051), new
+                InetSocketAddress("127.0.0.1", 20000)));
+
+        assertEquals(0, content.refCnt());
+    }
+
+    /**
+     * 构建零拷贝模式的TCP连接处理链，数据处理器注册到协议栈
+     *
+     * @param inline   是否在IO线程中直接处理接收到的数据
+     * @param handlers 位于CustomFrameDecoder之后的处理器
+     */
+    private void tcp(boolean inline, ChannelHandler... handlers) {
+        tcp(inline, null, handlers);
+    }
+
+    private void tcp(boolean inline, AdmissionControl admission, ChannelHandler... handlers) {
+        protocol = protocol(inline);
+        List<ChannelHandler> pipeline = new ArrayList<>();
+        pipeline.add(new CustomFrameDecoder());
+        pipeline.addAll(Arrays.asList(handlers));
+        pipeline.add(new DatagramDecoder(true));
+        pipeline.add(new ConnectorManager(protocol, 0, UnwritablePolicy.PARK, 0, admission));
+        channel = channel(pipeline.toArray(new ChannelHandler[0]));
+    }
+
+    /**
+     * 测试的输入使用池化分配器，连接写出的响应使用非池化分配器：池化缓冲区释放后对象会被回收复用，如果响应复用了
+     * 输入缓冲区的对象，输入缓冲区的引用计数又会变为1，断言就失效了
+     */
+    private static EmbeddedChannel channel(ChannelHandler... handlers) {
+        EmbeddedChannel channel = new EmbeddedChannel(handlers);
+        channel.config().setAllocator(UnpooledByteBufAllocator.DEFAULT);
+        return channel;
+    }
+
+    private ProtocolImpl protocol(boolean inline) {
+        ProtocolImpl protocol = ProtocolImpl.builder().publishCenter(publishCenter).deque(deque).heartbeaat(30)
+                .inline(inline).build();
+        protocol.init();
+        protocol.register(dataworker);
+        return protocol;
+    }
+
+    /**
+     * 使用池化分配器构建版本2的数据报
+     */
+    private static ByteBuf datagram(byte[] body, byte type, int correlationId) {
+        return DatagramUtil.encode(PooledByteBufAllocator.DEFAULT, body, type, Datagram.VERSION_2, correlationId);
+    }
+
+    /**
+     * 路由字段：2个字节的路由长度加上UTF-8编码的路由
+     */
+    private static byte[] route(String route) {
+        byte[] bytes = route.getBytes(StandardCharsets.UTF_8);
+        byte[] field = new byte[bytes.length + 2];
+        field[0] = (byte) (bytes.length >> 8);
+        field[1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, field, 2, bytes.length);
+        return field;
+    }
+
+    private static void write(ByteBuf content, ByteBuf datagram) {
+        content.writeBytes(datagram);
+        datagram.release();
+    }
+
+    private static void release(Object msg) {
+        assertNotNull(msg);
+        ((ByteBuf) msg).release();
+    }
+}